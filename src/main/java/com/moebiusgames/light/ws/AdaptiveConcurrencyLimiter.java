@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrently executed requests to a limit that
+ * adapts to the observed latency (gradient algorithm). As long as the latency
+ * of the recent requests is close to the long term latency the limit grows,
+ * as soon as requests start to queue up (and the recent latency rises) the
+ * limit shrinks. That way the number of requests in flight stays near the
+ * point where latency starts to increase and requests above the limit are
+ * rejected right away with 503 instead of queuing up.
+ * <p>
+ * Latencies are only summed up while requests complete, the limit is
+ * recomputed from their average once per window (100 ms) by whichever
+ * request completes first after the window has passed.
+ * <p>
+ * Use {@link WebServiceHandler#setConcurrencyLimiter(com.moebiusgames.light.ws.AdaptiveConcurrencyLimiter)}
+ * to activate it (one limiter can be shared by several handlers).
+ *
+ * @author Florian Frankenberger
+ */
+public class AdaptiveConcurrencyLimiter implements AdaptiveConcurrencyLimiterMXBean {
+
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    //in windows, not in requests
+    private static final double SHORT_WINDOW_FACTOR = 2.0 / (2 + 1);
+    private static final double LONG_WINDOW_FACTOR = 2.0 / (100 + 1);
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int limit;
+
+    //samples of the current window
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder sampleCount = new LongAdder();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    //only written by the request that closes a window
+    private volatile double estimatedLimit;
+    private volatile double shortRttNanos = 0;
+    private volatile double longRttNanos = 0;
+
+    public AdaptiveConcurrencyLimiter() {
+        this(20, 4, 1000);
+    }
+
+    /**
+     * @param initialLimit the limit to start with
+     * @param minLimit the limit never drops below this value
+     * @param maxLimit the limit never grows above this value
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * tries to start a request
+     *
+     * @return true if the request may be executed, false if it
+     *         needs to be rejected
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * marks a request that was acquired as done
+     *
+     * @param latencyNanos the time it took to execute the request
+     */
+    public void release(long latencyNanos) {
+        final int currentInFlight = inFlight.getAndDecrement();
+        latencySum.add(latencyNanos);
+        sampleCount.increment();
+        int max;
+        while (currentInFlight > (max = maxInFlight.get())
+                && !maxInFlight.compareAndSet(max, currentInFlight)) {
+            //someone else raised the maximum meanwhile
+        }
+
+        final long now = System.nanoTime();
+        final long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            update();
+        }
+    }
+
+    /**
+     * gives back the permit of a request that was acquired but never
+     * executed (e.g. its body could not be read), so no latency is
+     * recorded for it
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * closes the current window and recomputes the limit from its samples
+     */
+    private void update() {
+        final long samples = sampleCount.sumThenReset();
+        final long latency = latencySum.sumThenReset();
+        final int peakInFlight = maxInFlight.getAndSet(0);
+        if (samples == 0) {
+            return;
+        }
+        final double rttNanos = (double) latency / samples;
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        final double shortRtt = shortRttNanos + (rttNanos - shortRttNanos) * SHORT_WINDOW_FACTOR;
+        double longRtt = longRttNanos + (rttNanos - longRttNanos) * LONG_WINDOW_FACTOR;
+
+        //if the latency dropped a lot the long term average needs to catch up faster
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        shortRttNanos = shortRtt;
+        longRttNanos = longRtt;
+
+        //don't grow the limit if it is not even used
+        final double currentLimit = estimatedLimit;
+        if (peakInFlight < currentLimit / 2) {
+            return;
+        }
+
+        final double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+        final double queueSize = Math.sqrt(currentLimit);
+        final double newLimit = currentLimit * gradient + queueSize;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                currentLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getShortLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros((long) shortRttNanos);
+    }
+
+    @Override
+    public long getLongLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros((long) longRttNanos);
+    }
+
+}
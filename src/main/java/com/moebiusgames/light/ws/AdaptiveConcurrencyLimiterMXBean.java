@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+/**
+ * The metrics of an {@link AdaptiveConcurrencyLimiter}. Register the
+ * limiter at an MBeanServer to make them visible via JMX.
+ *
+ * @author Florian Frankenberger
+ */
+public interface AdaptiveConcurrencyLimiterMXBean {
+
+    /**
+     * the current number of requests that may be executed concurrently
+     *
+     * @return
+     */
+    int getLimit();
+
+    /**
+     * the number of requests currently executed
+     *
+     * @return
+     */
+    int getInFlight();
+
+    /**
+     * the number of requests that were rejected so far
+     *
+     * @return
+     */
+    long getRejectedCount();
+
+    /**
+     * the average latency of the most recent requests in microseconds
+     *
+     * @return
+     */
+    long getShortLatencyMicros();
+
+    /**
+     * the average latency over a long period in microseconds
+     *
+     * @return
+     */
+    long getLongLatencyMicros();
+
+}
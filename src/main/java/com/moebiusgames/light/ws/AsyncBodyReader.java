@@ -0,0 +1,283 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads the body of a request with a {@link ReadListener}: bytes are only
+ * read when they are available, so no thread waits for slow clients. Once
+ * the body is complete the request is dispatched again and then continued
+ * (see {@link #resume(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)})
+ * with the collected body.
+ *
+ * @author Florian Frankenberger
+ */
+final class AsyncBodyReader implements ReadListener {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncBodyReader.class.getCanonicalName());
+
+    private static final String PENDING_ATTRIBUTE = AsyncBodyReader.class.getName() + ".pending";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final AsyncContext asyncContext;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final ServletInputStream in;
+    private final SpooledBody body;
+    private final long maxSize;
+    private final Continuation continuation;
+    private final ByteBuffer buffer = BufferPools.acquire(BUFFER_SIZE);
+    private boolean done = false;
+
+    /**
+     * continues a request once its body has been read
+     */
+    interface Continuation {
+
+        /**
+         * @param request the request, its body is read from the spooled body
+         * @param response
+         * @param body the spooled body (to be deleted once it is not needed anymore)
+         * @throws IOException
+         */
+        void resume(HttpServletRequest request, HttpServletResponse response,
+                SpooledBody body) throws IOException;
+
+        /**
+         * called instead of {@link #resume} if the body could not be read
+         */
+        default void cancel() {
+        }
+
+    }
+
+    /**
+     * a read body waiting for its request to be dispatched again
+     */
+    private static final class Pending {
+
+        private final SpooledBody body;
+        private final Continuation continuation;
+
+        Pending(SpooledBody body, Continuation continuation) {
+            this.body = body;
+            this.continuation = continuation;
+        }
+
+    }
+
+    private AsyncBodyReader(HttpServletRequest request, HttpServletResponse response,
+            int memoryThreshold, long maxSize, Continuation continuation) throws IOException {
+        this.request = request;
+        this.response = response;
+        this.asyncContext = request.startAsync();
+        this.asyncContext.setTimeout(0);
+        this.in = request.getInputStream();
+        this.body = new SpooledBody(memoryThreshold);
+        this.maxSize = maxSize;
+        this.continuation = continuation;
+    }
+
+    /**
+     * starts reading the body of the request
+     *
+     * @param request
+     * @param response
+     * @param memoryThreshold the bytes kept in memory before the body is
+     *                        written to a temporary file
+     * @param maxSize the maximum size of the body or -1 if unlimited
+     * @param continuation continues the request once the body is complete
+     * @throws IOException
+     */
+    public static void start(HttpServletRequest request, HttpServletResponse response,
+            int memoryThreshold, long maxSize, Continuation continuation) throws IOException {
+        final AsyncBodyReader reader = new AsyncBodyReader(request, response, memoryThreshold,
+                maxSize, continuation);
+        //the listener is called right away if data is available already
+        reader.in.setReadListener(reader);
+    }
+
+    /**
+     * continues a request that has been dispatched again after its body
+     * was read. The request is continued by the one who started reading
+     * it, no matter which handler it is dispatched to now.
+     *
+     * @param request
+     * @param response
+     * @return true if the request has been continued, false if its body
+     *         has not been read by this class
+     * @throws IOException
+     */
+    public static boolean resume(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final Object pending = request.getAttribute(PENDING_ATTRIBUTE);
+        if (!(pending instanceof Pending)) {
+            return false;
+        }
+        request.removeAttribute(PENDING_ATTRIBUTE);
+        final SpooledBody body = ((Pending) pending).body;
+        ((Pending) pending).continuation.resume(new SpooledBodyRequest(request, body), response, body);
+        return true;
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        final byte[] bytes = buffer.array();
+        final int offset = buffer.arrayOffset();
+        int read;
+        while (!done && in.isReady() && (read = in.read(bytes, offset, BUFFER_SIZE)) >= 0) {
+            if (maxSize >= 0 && body.getLength() + read > maxSize) {
+                fail(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, null);
+                return;
+            }
+            body.write(bytes, offset, read);
+        }
+    }
+
+    @Override
+    public void onAllDataRead() throws IOException {
+        if (done) {
+            return;
+        }
+        done = true;
+        BufferPools.release(buffer);
+        body.finish();
+        request.setAttribute(PENDING_ATTRIBUTE, new Pending(body, continuation));
+        asyncContext.dispatch();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(HttpServletResponse.SC_BAD_REQUEST, t);
+    }
+
+    private void fail(int statusCode, Throwable t) {
+        if (done) {
+            return;
+        }
+        done = true;
+        BufferPools.release(buffer);
+        body.delete();
+        continuation.cancel();
+        if (t != null) {
+            LOGGER.log(Level.FINE, "Could not read request body", t);
+        }
+        try {
+            response.sendError(statusCode);
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, "Could not send status " + statusCode + " to client", e);
+        }
+        asyncContext.complete();
+    }
+
+    /**
+     * a request whose body is read from a spooled body
+     */
+    private static class SpooledBodyRequest extends HttpServletRequestWrapper {
+
+        private final SpooledBody body;
+
+        SpooledBodyRequest(HttpServletRequest request, SpooledBody body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            final InputStream in = body.openInputStream();
+            return new ServletInputStream() {
+
+                private boolean finished = false;
+
+                @Override
+                public int read() throws IOException {
+                    final int read = in.read();
+                    finished = read < 0;
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    final int read = in.read(bytes, offset, length);
+                    finished = read < 0;
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    in.close();
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new IllegalStateException("Body has already been read");
+                }
+
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            final String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.getLength() > Integer.MAX_VALUE ? -1 : (int) body.getLength();
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.getLength();
+        }
+
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An endpoint that accepts a list of requests, dispatches them
+ * through the regular mappings and answers with all their results
+ * in one response. The body of the batch request looks like this:
+ * <pre>
+ * [
+ *   {"method": "GET", "path": "/ws/item/1"},
+ *   {"method": "POST", "path": "/ws/item", "body": {"name": "foo"}}
+ * ]
+ * </pre>
+ * and the response contains one entry per request in the same order:
+ * <pre>
+ * [
+ *   {"status": 200, "body": {"id": 1}},
+ *   {"status": 500, "body": null}
+ * ]
+ * </pre>
+ * Results that are not JSON are returned as string together with
+ * their content type, binary ones are base64 encoded and marked with
+ * {@code "encoding": "base64"}. Add the query parameter parallel=true to execute
+ * the requests in parallel (if an executor has been configured). Batches
+ * with more than the maximum number of requests are answered with 413.
+ *
+ * @author Florian Frankenberger
+ */
+class BatchEndpoint {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchEndpoint.class.getCanonicalName());
+
+    /**
+     * the number of requests a batch may contain by default
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 50;
+
+    private final String path;
+    private final ExecutorService executor;
+    private final int maxRequests;
+
+    private volatile ObjectMapper objectMapper = null;
+
+    /**
+     * dispatches a single request to the matching mapping
+     */
+    interface Dispatcher {
+
+        boolean dispatch(String target, HttpServletRequest request,
+                HttpServletResponse response) throws IOException;
+
+    }
+
+    public BatchEndpoint(String path, ExecutorService executor, int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("A batch needs to allow at least one request");
+        }
+        this.path = path;
+        this.executor = executor;
+        this.maxRequests = maxRequests;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    private ObjectMapper getObjectMapper() {
+        final ObjectMapper result = objectMapper;
+        return result != null ? result : ObjectMappers.getDefault();
+    }
+
+    public boolean matches(String target, HttpServletRequest request) {
+        return HttpMethod.POST.matches(request.getMethod()) && target.equals(path);
+    }
+
+    public void handle(HttpServletRequest request, HttpServletResponse response,
+            Dispatcher dispatcher) throws IOException {
+        final ObjectMapper objectMapper = getObjectMapper();
+        final JsonNode entries;
+        try (Reader reader = request.getReader()) {
+            entries = objectMapper.readTree(reader);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read batch request", e);
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (entries == null || !entries.isArray()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        if (entries.size() > maxRequests) {
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                    "A batch may contain at most " + maxRequests + " requests");
+            return;
+        }
+
+        final List<BatchRequest> requests = new ArrayList<>(entries.size());
+        for (JsonNode entry : entries) {
+            final JsonNode method = entry.get("method");
+            final JsonNode entryPath = entry.get("path");
+            if (entryPath == null || !entryPath.isTextual()) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            final JsonNode body = entry.get("body");
+            requests.add(new BatchRequest(request,
+                    method == null ? HttpMethod.GET.name() : method.asText(),
+                    entryPath.asText(),
+                    body == null ? null : "application/json; charset=utf-8",
+                    body == null ? new byte[0] : objectMapper.writeValueAsBytes(body)));
+        }
+
+        final List<BufferedResponse> responses = new ArrayList<>(requests.size());
+        if (executor != null && "true".equalsIgnoreCase(getQueryParameter(request, "parallel"))) {
+            final List<Future<BufferedResponse>> futures = new ArrayList<>(requests.size());
+            for (BatchRequest batchRequest : requests) {
+                futures.add(executor.submit(() -> dispatch(batchRequest, response, dispatcher)));
+            }
+            for (Future<BufferedResponse> future : futures) {
+                try {
+                    responses.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IOException("Could not execute batch request", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while executing batch request", e);
+                }
+            }
+        } else {
+            for (BatchRequest batchRequest : requests) {
+                responses.add(dispatch(batchRequest, response, dispatcher));
+            }
+        }
+
+        final ArrayNode results = objectMapper.createArrayNode();
+        for (BufferedResponse bufferedResponse : responses) {
+            final ObjectNode result = results.addObject();
+            result.put("status", bufferedResponse.getStatus());
+            final byte[] body = bufferedResponse.getBody();
+            final String contentType = bufferedResponse.getContentType();
+            if (body.length == 0) {
+                result.putNull("body");
+            } else if (contentType != null && contentType.trim().toLowerCase().startsWith("application/json")) {
+                //the mapping already produced valid json, so there is no need to parse it again
+                result.putRawValue("body", new RawValue(new String(body, StandardCharsets.UTF_8)));
+            } else if (isText(contentType)) {
+                result.put("contentType", contentType);
+                result.put("body", new String(body, StandardCharsets.UTF_8));
+            } else {
+                //binary content would be broken by decoding it as text
+                result.put("contentType", contentType);
+                result.put("encoding", "base64");
+                result.put("body", Base64.getEncoder().encodeToString(body));
+            }
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json; charset=utf-8");
+        response.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+        objectMapper.writeValue(response.getOutputStream(), results);
+    }
+
+    private BufferedResponse dispatch(BatchRequest batchRequest, HttpServletResponse response,
+            Dispatcher dispatcher) throws IOException {
+        final BufferedResponse bufferedResponse = new BufferedResponse(response);
+        if (!dispatcher.dispatch(batchRequest.getRequestURI(), batchRequest, bufferedResponse)) {
+            bufferedResponse.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+        return bufferedResponse;
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        final String type = contentType.trim().toLowerCase();
+        return type.startsWith("text/") || type.contains("charset=")
+                || type.contains("json") || type.contains("xml") || type.contains("javascript");
+    }
+
+    private static String getQueryParameter(HttpServletRequest request, String name) {
+        final String queryString = request.getQueryString();
+        if (queryString != null) {
+            for (String pair : queryString.split("&")) {
+                final int pos = pair.indexOf('=');
+                if (pos > 0 && pair.substring(0, pos).equals(name)) {
+                    return pair.substring(pos + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a method that is also annotated with {@link PostMapping}
+ * to collect concurrent calls into batches. The method must accept exactly
+ * one parameter of type List&lt;T&gt; annotated with {@link PostParameter}
+ * while every client posts a single T. The method must either return
+ * void or a list with one result per element (in the same order). A result
+ * may be a {@link Response} to set the status code for a single caller or
+ * a Throwable to let a single call fail.
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Batched {
+
+    /**
+     * the maximum number of calls that are collected into one batch
+     *
+     * @return
+     */
+    int maxSize() default 100;
+
+    /**
+     * the maximum time in microseconds the first call of a batch waits
+     * for further calls before the batch is executed
+     *
+     * @return
+     */
+    long lingerMicros() default 1000;
+
+}
@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+
+/**
+ * Holds the buffer pool shared by all I/O of the web services (spooling
+ * uploads, splitting multipart bodies, sending files and text). Buffers are
+ * heap buffers, as they are read into and written from streams. A pool
+ * shared with the server (like the one of its connectors) can be set
+ * instead of the default one.
+ *
+ * @author Florian Frankenberger
+ */
+public final class BufferPools {
+
+    /**
+     * the size of the buffers used to copy data
+     */
+    static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static volatile ByteBufferPool pool = new ArrayByteBufferPool();
+
+    private static final ThreadLocal<CharsetEncoder> UTF8_ENCODER
+            = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private BufferPools() {
+    }
+
+    public static ByteBufferPool getDefault() {
+        return pool;
+    }
+
+    /**
+     * replaces the shared buffer pool
+     *
+     * @param pool the pool to use or null to go back to a new default one
+     */
+    public static void setDefault(ByteBufferPool pool) {
+        BufferPools.pool = pool == null ? new ArrayByteBufferPool() : pool;
+    }
+
+    /**
+     * acquires a heap buffer with at least the given capacity
+     *
+     * @param size
+     * @return
+     */
+    static ByteBuffer acquire(int size) {
+        final ByteBuffer buffer = pool.acquire(size, false);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * returns the buffer to the pool (null is ignored)
+     *
+     * @param buffer
+     */
+    static void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * copies the stream using a pooled buffer
+     *
+     * @param in
+     * @param out
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+    static long copy(InputStream in, OutputStream out) throws IOException {
+        final ByteBuffer buffer = acquire(COPY_BUFFER_SIZE);
+        try {
+            final byte[] bytes = buffer.array();
+            final int offset = buffer.arrayOffset();
+            long copied = 0;
+            int read;
+            while ((read = in.read(bytes, offset, COPY_BUFFER_SIZE)) >= 0) {
+                out.write(bytes, offset, read);
+                copied += read;
+            }
+            return copied;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * writes the text UTF-8 encoded without creating a byte array of
+     * the whole text
+     *
+     * @param text
+     * @param out
+     * @throws IOException
+     */
+    static void writeUtf8(CharSequence text, OutputStream out) throws IOException {
+        final CharsetEncoder encoder = UTF8_ENCODER.get().reset();
+        final CharBuffer in = CharBuffer.wrap(text);
+        final ByteBuffer buffer = acquire(Math.min(COPY_BUFFER_SIZE,
+                (int) Math.ceil(text.length() * encoder.maxBytesPerChar()) + 16));
+        try {
+            boolean endOfInput = false;
+            while (true) {
+                final CoderResult result = endOfInput
+                        ? encoder.flush(buffer)
+                        : encoder.encode(in, buffer, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (buffer.position() > 0) {
+                    out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+                    buffer.clear();
+                }
+                if (result.isUnderflow()) {
+                    if (endOfInput) {
+                        return;
+                    }
+                    endOfInput = true;
+                }
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+}
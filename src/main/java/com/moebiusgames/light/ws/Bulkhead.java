@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a method annotated with {@link GetMapping} or {@link PostMapping}
+ * (or all mappings of a class annotated with {@link WebService}) to a named
+ * bulkhead. Each bulkhead has its own threads and its own bounded queue and
+ * requests are handed over to them asynchronously, so the requests of one
+ * bulkhead can never occupy all the threads of the server. If the queue of
+ * a bulkhead is full requests are answered with 503.
+ * <p>
+ * All mappings of a handler with the same bulkhead name share the same
+ * bulkhead (and must therefore declare the same size).
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+
+    /**
+     * the name of the bulkhead
+     *
+     * @return
+     */
+    String value();
+
+    /**
+     * the number of threads executing the requests of this bulkhead
+     *
+     * @return
+     */
+    int threads() default 4;
+
+    /**
+     * the maximum number of requests waiting for a thread
+     *
+     * @return
+     */
+    int queueSize() default 50;
+
+}
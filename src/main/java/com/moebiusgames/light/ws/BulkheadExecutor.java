@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The threads and the queue of a {@link Bulkhead}
+ *
+ * @author Florian Frankenberger
+ */
+class BulkheadExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(BulkheadExecutor.class.getCanonicalName());
+
+    private final Bulkhead bulkhead;
+    private final ThreadPoolExecutor executor;
+
+    public BulkheadExecutor(Bulkhead bulkhead) {
+        if (bulkhead.threads() < 1 || bulkhead.queueSize() < 1) {
+            throw new IllegalStateException("Bulkhead " + bulkhead.value()
+                    + " needs at least one thread and a queue size of at least one");
+        }
+        this.bulkhead = bulkhead;
+        this.executor = new ThreadPoolExecutor(bulkhead.threads(), bulkhead.threads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(bulkhead.queueSize()),
+                new DaemonThreadFactory("light-ws-bulkhead-" + bulkhead.value() + "-"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * checks if the given bulkhead can share this executor
+     *
+     * @param other
+     * @return
+     */
+    public boolean isCompatible(Bulkhead other) {
+        return bulkhead.threads() == other.threads()
+                && bulkhead.queueSize() == other.queueSize();
+    }
+
+    /**
+     * Executes the given task asynchronously. The calling thread returns
+     * right away while the request is kept open until the task is done.
+     *
+     * @param request
+     * @param response
+     * @param task the task to execute
+     * @param onDone called after the task is done, or right away if the
+     *               task was rejected
+     */
+    public void execute(HttpServletRequest request, HttpServletResponse response,
+            Runnable task, Runnable onDone) {
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(0);
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    onDone.run();
+                    asyncContext.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            onDone.run();
+            try {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } catch (Exception io) {
+                LOGGER.log(Level.WARNING, "Could not send status 503 to client", io);
+            }
+            asyncContext.complete();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A method of a client interface (see {@link WebServiceClient}) with
+ * everything needed for a call prepared when the proxy is created: the url
+ * template split into literals and parameter positions and the JSON reader
+ * and writer of its types.
+ *
+ * @author Florian Frankenberger
+ */
+class ClientMethod {
+
+    private static final Pattern URL_PARAMETER_PATTERN = Pattern.compile("\\{(.*?)\\}");
+
+    private enum ResultKind {
+        VOID, STRING, JSON
+    }
+
+    private final Method method;
+    private final HttpMethod httpMethod;
+
+    private final String[] urlLiterals;
+    private final int[] urlParameters;
+
+    private int postParameter = -1;
+    private ObjectWriter postWriter = null;
+
+    private final boolean async;
+    private final boolean response;
+    private final ResultKind resultKind;
+    private final ObjectReader resultReader;
+
+    public ClientMethod(Method method, String pathPrefix, ObjectMapper objectMapper) {
+        this.method = method;
+
+        final String path;
+        if (method.isAnnotationPresent(GetMapping.class)) {
+            httpMethod = HttpMethod.GET;
+            path = method.getAnnotation(GetMapping.class).value();
+        } else if (method.isAnnotationPresent(PostMapping.class)) {
+            httpMethod = HttpMethod.POST;
+            path = method.getAnnotation(PostMapping.class).value();
+        } else {
+            throw new IllegalStateException("Method " + method + " is neither annotated with "
+                    + "GetMapping nor with PostMapping");
+        }
+
+        final Map<String, Integer> getParameters = new HashMap<>();
+        final Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; ++i) {
+            final Parameter parameter = parameters[i];
+            if (parameter.isAnnotationPresent(GetParameter.class)) {
+                getParameters.put(parameter.getAnnotation(GetParameter.class).value(), i);
+            } else if (parameter.isAnnotationPresent(PostParameter.class) && httpMethod == HttpMethod.POST) {
+                if (parameter.getType() == UploadedFile.class) {
+                    throw new IllegalStateException("Uploading files is not supported by the client ("
+                            + method + ")");
+                }
+                postParameter = i;
+                postWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                        .constructType(parameter.getParameterizedType()));
+            } else {
+                throw new IllegalStateException("Parameter " + parameter.getName() + " of " + method
+                        + " can't be sent by the client");
+            }
+        }
+
+        //precompile the url template
+        final List<String> literals = new ArrayList<>();
+        final List<Integer> indices = new ArrayList<>();
+        final Matcher matcher = URL_PARAMETER_PATTERN.matcher(path);
+        int last = 0;
+        while (matcher.find()) {
+            final Integer index = getParameters.remove(matcher.group(1));
+            if (index == null) {
+                throw new IllegalStateException("Parameter " + matcher.group(1)
+                        + " was not found in method " + method);
+            }
+            literals.add(path.substring(last, matcher.start()));
+            indices.add(index);
+            last = matcher.end();
+        }
+        literals.add(path.substring(last));
+        if (!getParameters.isEmpty()) {
+            throw new IllegalStateException("Parameters " + getParameters.keySet()
+                    + " are not part of the path of " + method);
+        }
+        literals.set(0, pathPrefix + literals.get(0));
+        this.urlLiterals = literals.toArray(new String[literals.size()]);
+        this.urlParameters = new int[indices.size()];
+        for (int i = 0; i < urlParameters.length; ++i) {
+            urlParameters[i] = indices.get(i);
+        }
+
+        //prepare the reader of the result
+        Type resultType = method.getGenericReturnType();
+        async = getRawType(resultType) == CompletableFuture.class;
+        if (async) {
+            resultType = getTypeArgument(resultType);
+        }
+        response = getRawType(resultType) == Response.class;
+        if (response) {
+            resultType = getTypeArgument(resultType);
+        }
+        if (resultType == void.class || resultType == Void.class) {
+            resultKind = ResultKind.VOID;
+            resultReader = null;
+        } else if (resultType == String.class) {
+            resultKind = ResultKind.STRING;
+            resultReader = null;
+        } else {
+            resultKind = ResultKind.JSON;
+            final JavaType javaType = objectMapper.getTypeFactory().constructType(resultType);
+            resultReader = objectMapper.readerFor(javaType);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * calls the web service
+     *
+     * @param client the client the proxy was created by
+     * @param baseUrl the url of the server
+     * @param arguments the arguments of the call
+     * @return the result or a future of the result for async methods
+     * @throws IllegalArgumentException if a parameter of the path is null
+     */
+    public Object invoke(WebServiceClient client, String baseUrl, Object[] arguments) {
+        //invalid arguments are reported to the caller even for async methods
+        final String url = formatUrl(baseUrl, arguments);
+        if (async) {
+            return CompletableFuture.supplyAsync(() -> call(client, url, arguments),
+                    client.getExecutor());
+        }
+        return call(client, url, arguments);
+    }
+
+    private Object call(WebServiceClient client, String url, Object[] arguments) {
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(client.getConnectTimeout());
+            connection.setReadTimeout(client.getReadTimeout());
+            connection.setRequestMethod(httpMethod.name());
+            connection.setRequestProperty("Accept", "application/json, text/plain");
+            if (httpMethod == HttpMethod.POST) {
+                final byte[] body = postParameter < 0
+                        ? new byte[0]
+                        : postWriter.writeValueAsBytes(arguments[postParameter]);
+                connection.setDoOutput(true);
+                //a fixed length keeps the connection reusable for the next call
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+
+            final int statusCode = connection.getResponseCode();
+            final boolean success = statusCode >= 200 && statusCode < 300;
+            //the body is always read completely, otherwise the connection can't be kept alive
+            final byte[] body = readFully(success ? connection.getInputStream() : connection.getErrorStream());
+            if (!success && !response) {
+                throw new WebServiceClientException(httpMethod + " " + url
+                        + " was answered with status " + statusCode, statusCode);
+            }
+
+            //error pages are skipped, but a Response of the service can carry a result with any status
+            final String contentType = connection.getContentType();
+            final boolean hasResult = success || (resultKind == ResultKind.JSON && contentType != null
+                    && contentType.toLowerCase().startsWith("application/json"));
+            final Object result = hasResult ? readResult(body) : null;
+            if (response) {
+                final Response<Object> responseObject = new Response<>(result, statusCode);
+                for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                    if (header.getKey() != null && !header.getValue().isEmpty()) {
+                        responseObject.setHeader(header.getKey(), header.getValue().get(0));
+                    }
+                }
+                return responseObject;
+            }
+            return result;
+        } catch (IOException e) {
+            throw new WebServiceClientException("Could not call " + httpMethod + " " + url, e);
+        }
+    }
+
+    private Object readResult(byte[] body) throws IOException {
+        switch (resultKind) {
+            case STRING:
+                return new String(body, StandardCharsets.UTF_8);
+            case JSON:
+                return body.length == 0 ? null : resultReader.readValue(body);
+            default:
+                return null;
+        }
+    }
+
+    private String formatUrl(String baseUrl, Object[] arguments) {
+        final StringBuilder url = new StringBuilder(baseUrl);
+        url.append(urlLiterals[0]);
+        for (int i = 0; i < urlParameters.length; ++i) {
+            final Object value = arguments[urlParameters[i]];
+            if (value == null) {
+                throw new IllegalArgumentException("Parameter " + method.getParameters()[urlParameters[i]]
+                        .getAnnotation(GetParameter.class).value() + " of " + method + " must not be null");
+            }
+            url.append(encode(value.toString()));
+            url.append(urlLiterals[i + 1]);
+        }
+        return url.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            //URLEncoder encodes for forms, in a path a space is %20
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        if (in == null) {
+            return new byte[0];
+        }
+        try (InputStream input = in) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BufferPools.copy(input, out);
+            return out.toByteArray();
+        }
+    }
+
+    private static Class<?> getRawType(Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return type instanceof Class ? (Class<?>) type : null;
+    }
+
+    private static Type getTypeArgument(Type type) {
+        return type instanceof ParameterizedType
+                ? ((ParameterizedType) type).getActualTypeArguments()[0]
+                : Object.class;
+    }
+
+}
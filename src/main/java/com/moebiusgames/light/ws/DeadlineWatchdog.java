@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks all running requests that have a {@link RequestContext}
+ * and cancels the ones whose deadline has passed or whose connection has
+ * been closed. A single daemon thread is shared by all handlers and started
+ * by the first handler that is started.
+ *
+ * @author Florian Frankenberger
+ */
+final class DeadlineWatchdog {
+
+    private static final long CHECK_INTERVAL_MILLIS = 20;
+
+    private static final Set<RequestContext> CONTEXTS = ConcurrentHashMap.newKeySet();
+
+    private static ScheduledExecutorService executor = null;
+
+    private DeadlineWatchdog() {
+    }
+
+    public static void register(RequestContext context) {
+        CONTEXTS.add(context);
+    }
+
+    public static void unregister(RequestContext context) {
+        CONTEXTS.remove(context);
+    }
+
+    /**
+     * starts the watchdog if it is not already running
+     */
+    public static synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new DaemonThreadFactory("light-ws-deadline-watchdog-"));
+            executor.scheduleWithFixedDelay(DeadlineWatchdog::check,
+                    CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void check() {
+        final long now = System.nanoTime();
+        final Iterator<RequestContext> iterator = CONTEXTS.iterator();
+        while (iterator.hasNext()) {
+            try {
+                if (iterator.next().checkExpired(now)) {
+                    iterator.remove();
+                }
+            } catch (RuntimeException e) {
+                //never let the watchdog die
+                iterator.remove();
+            }
+        }
+    }
+
+}
@@ -32,7 +32,11 @@ import java.util.List;
 /**
  * The default multipart splitter that uses pure Java to split the multipart
  * body
+ *
+ * @deprecated multipart bodies are now split in a single pass while they
+ *             are read from the request, splitters are not used anymore
  */
+@Deprecated
 public class DefaultMultipartSplitter implements MultipartSplitter {
 
     @Override
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Caches the encoded form of immutable results. Results are identified by
+ * their version if they have one and by identity otherwise. The gzip
+ * compressed variant is created when it is requested for the first time.
+ *
+ * @author Florian Frankenberger
+ */
+final class EncodedResultCache {
+
+    static final int DEFAULT_SIZE = 16;
+
+    /**
+     * results smaller than this are not worth to be compressed
+     */
+    private static final int MIN_COMPRESS_SIZE = 256;
+
+    private final Map<Key, EncodedResult> entries;
+
+    EncodedResultCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalStateException("The cache size must be at least 1 but is " + maxEntries);
+        }
+        this.entries = new LinkedHashMap<Key, EncodedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, EncodedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * returns the encoded result, encoding it if it is not cached yet
+     *
+     * @param result the result
+     * @param version the version of the result or null to identify it by identity
+     * @param encoder encodes the result
+     * @return
+     * @throws IOException
+     */
+    EncodedResult get(Object result, Object version, Encoder encoder) throws IOException {
+        final Key key = new Key(version != null ? version : result, version == null);
+        synchronized (entries) {
+            final EncodedResult encoded = entries.get(key);
+            if (encoded != null) {
+                return encoded;
+            }
+        }
+
+        //encoding twice in a race is cheaper than encoding while holding the lock
+        final EncodedResult encoded = new EncodedResult(encoder.encode(result));
+        synchronized (entries) {
+            final EncodedResult existing = entries.putIfAbsent(key, encoded);
+            return existing != null ? existing : encoded;
+        }
+    }
+
+    /**
+     * checks if the client accepts gzip encoded responses
+     *
+     * @param request
+     * @return
+     */
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Boolean gzip = null;
+        Boolean any = null;
+        final Enumeration<String> headers = request.getHeaders("Accept-Encoding");
+        while (headers != null && headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                final String[] parts = coding.split(";");
+                final String name = parts[0].trim().toLowerCase();
+                boolean accepted = true;
+                for (int i = 1; i < parts.length; ++i) {
+                    final String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            accepted = Double.parseDouble(parameter.substring(2).trim()) > 0;
+                        } catch (NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                if (name.equals("gzip") || name.equals("x-gzip")) {
+                    gzip = accepted;
+                } else if (name.equals("*")) {
+                    any = accepted;
+                }
+            }
+        }
+        return gzip != null ? gzip : any != null && any;
+    }
+
+    interface Encoder {
+
+        byte[] encode(Object result) throws IOException;
+
+    }
+
+    /**
+     * an encoded result and its compressed variant
+     */
+    static final class EncodedResult {
+
+        private final byte[] bytes;
+        private volatile byte[] gzipped = null;
+
+        EncodedResult(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * returns the gzip compressed result
+         *
+         * @return the compressed bytes or null if compression does not
+         *         make the result smaller
+         * @throws IOException
+         */
+        byte[] getGzipped() throws IOException {
+            byte[] result = gzipped;
+            if (result == null) {
+                result = bytes;
+                if (bytes.length >= MIN_COMPRESS_SIZE) {
+                    final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        gzip.write(bytes);
+                    }
+                    if (out.size() < bytes.length) {
+                        result = out.toByteArray();
+                    }
+                }
+                gzipped = result;
+            }
+            return result == bytes ? null : result;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Object value;
+        private final boolean identity;
+
+        Key(Object value, boolean identity) {
+            this.value = value;
+            this.identity = identity;
+        }
+
+        @Override
+        public int hashCode() {
+            return identity ? System.identityHashCode(value) : value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return identity == other.identity
+                    && (identity ? value == other.value : value.equals(other.value));
+        }
+
+    }
+
+}
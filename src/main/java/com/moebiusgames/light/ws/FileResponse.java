@@ -0,0 +1,294 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Sends a file returned by a mapping. Supports range requests (also with
+ * If-Range), so interrupted downloads can be resumed: a single range is
+ * answered with 206 and the slice of the file, multiple ranges with 206 and
+ * a multipart/byteranges body. Only the requested slices are read using
+ * positional reads of a FileChannel.
+ *
+ * @author Florian Frankenberger
+ */
+final class FileResponse {
+
+    private static final int MAX_RANGES = 64;
+
+    /**
+     * an inclusive range of bytes
+     */
+    static final class Range {
+
+        private final long start;
+        private final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+
+        private String toContentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+
+    }
+
+    private FileResponse() {
+    }
+
+    /**
+     * sends the given file
+     *
+     * @param request
+     * @param response
+     * @param file
+     * @param contentType the content type or null to guess it from the file
+     * @throws IOException
+     */
+    public static void send(HttpServletRequest request, HttpServletResponse response,
+            Path file, String contentType) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (contentType == null) {
+            contentType = Files.probeContentType(file);
+            if (contentType == null) {
+                contentType = "application/octet-stream";
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long lastModified = Files.getLastModifiedTime(file).toMillis();
+            final String etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+            response.setHeader("Accept-Ranges", "bytes");
+            response.setHeader("ETag", etag);
+            response.setDateHeader("Last-Modified", lastModified);
+
+            List<Range> ranges = null;
+            final String rangeHeader = request.getHeader("Range");
+            if (rangeHeader != null && response.getStatus() == HttpServletResponse.SC_OK
+                    && HttpMethod.GET.matches(request.getMethod())
+                    && isIfRangeFulfilled(request, etag, lastModified)) {
+                ranges = parseRanges(rangeHeader, size);
+                if (ranges != null && ranges.isEmpty()) {
+                    //not sendError(), as it would drop the Content-Range header
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader("Content-Range", "bytes */" + size);
+                    response.setContentLength(0);
+                    return;
+                }
+            }
+
+            final OutputStream out = response.getOutputStream();
+            final ByteBuffer buffer = BufferPools.acquire((int) Math.min(BufferPools.COPY_BUFFER_SIZE, Math.max(size, 1)));
+            try {
+                if (ranges == null) {
+                    response.setContentType(contentType);
+                    response.setContentLengthLong(size);
+                    transfer(channel, new Range(0, size - 1), buffer, out);
+                } else if (ranges.size() == 1) {
+                    final Range range = ranges.get(0);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setContentType(contentType);
+                    response.setHeader("Content-Range", range.toContentRange(size));
+                    response.setContentLengthLong(range.getLength());
+                    transfer(channel, range, buffer, out);
+                } else {
+                    final String boundary = UUID.randomUUID().toString().replace("-", "");
+                    final List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+                    long contentLength = 0;
+                    for (int i = 0; i < ranges.size(); ++i) {
+                        final Range range = ranges.get(i);
+                        final byte[] partHeader = ((i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                                + "Content-Type: " + contentType + "\r\n"
+                                + "Content-Range: " + range.toContentRange(size) + "\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1);
+                        partHeaders.add(partHeader);
+                        contentLength += partHeader.length + range.getLength();
+                    }
+                    final byte[] end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                    contentLength += end.length;
+
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setContentType("multipart/byteranges; boundary=" + boundary);
+                    response.setContentLengthLong(contentLength);
+                    for (int i = 0; i < ranges.size(); ++i) {
+                        out.write(partHeaders.get(i));
+                        transfer(channel, ranges.get(i), buffer, out);
+                    }
+                    out.write(end);
+                }
+            } finally {
+                BufferPools.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * checks the If-Range header, if the file has changed since the client
+     * got the first part the whole file has to be sent
+     */
+    private static boolean isIfRangeFulfilled(HttpServletRequest request, String etag, long lastModified) {
+        final String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+            //weak tags never match for ranges
+            return ifRange.trim().equals(etag);
+        }
+        try {
+            final long date = request.getDateHeader("If-Range");
+            //http dates have a resolution of seconds
+            return date >= 0 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * parses the ranges of a Range header. Overlapping and adjacent ranges
+     * are merged.
+     *
+     * @param header
+     * @param size the size of the file
+     * @return the ranges to send, an empty list if none of them can be
+     *         satisfied or null if the header is invalid (and therefore
+     *         has to be ignored)
+     */
+    static List<Range> parseRanges(String header, long size) {
+        final String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        final List<Range> ranges = new ArrayList<>();
+        for (String spec : value.substring(6).split(",")) {
+            spec = spec.trim();
+            final int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            final long start;
+            final long end;
+            try {
+                if (dash == 0) {
+                    //the last n bytes
+                    final long suffixLength = Long.parseLong(spec.substring(1));
+                    start = Math.max(0, size - suffixLength);
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        end = size - 1;
+                    } else {
+                        final long lastByte = Long.parseLong(spec.substring(dash + 1));
+                        if (lastByte < start) {
+                            return null;
+                        }
+                        end = Math.min(size - 1, lastByte);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (start > end) {
+                //not satisfiable (beyond the end of the file or an empty suffix)
+                continue;
+            }
+            ranges.add(new Range(start, end));
+        }
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+
+        Collections.sort(ranges, (a, b) -> Long.compare(a.getStart(), b.getStart()));
+        final List<Range> merged = new ArrayList<>(ranges.size());
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); ++i) {
+            final Range next = ranges.get(i);
+            if (next.getStart() <= current.getEnd() + 1) {
+                current = new Range(current.getStart(), Math.max(current.getEnd(), next.getEnd()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        if (merged.size() > MAX_RANGES) {
+            //too many slices are not worth the effort, just send everything
+            return null;
+        }
+        return merged;
+    }
+
+    private static void transfer(FileChannel channel, Range range, ByteBuffer buffer,
+            OutputStream out) throws IOException {
+        long position = range.getStart();
+        long remaining = range.getLength();
+        while (remaining > 0) {
+            buffer.clear();
+            if (buffer.capacity() > remaining) {
+                buffer.limit((int) remaining);
+            }
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("File is shorter than expected");
+            }
+            out.write(buffer.array(), buffer.arrayOffset(), read);
+            position += read;
+            remaining -= read;
+        }
+    }
+
+}
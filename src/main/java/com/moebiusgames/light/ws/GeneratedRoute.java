@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+/**
+ * A single entry of a {@link GeneratedRoutes} table
+ *
+ * @author Florian Frankenberger
+ */
+public final class GeneratedRoute {
+
+    private final String httpMethod;
+    private final String path;
+    private final String methodName;
+    private final Class<?>[] parameterTypes;
+
+    public GeneratedRoute(String httpMethod, String path, String methodName,
+            Class<?>... parameterTypes) {
+        this.httpMethod = httpMethod;
+        this.path = path;
+        this.methodName = methodName;
+        this.parameterTypes = parameterTypes;
+    }
+
+    /**
+     * the http method as named in {@link HttpMethod}
+     *
+     * @return
+     */
+    public String getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * the path of the mapping (without the path of the web service)
+     *
+     * @return
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes.clone();
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod + " " + path + " -> " + methodName + "()";
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.List;
+
+/**
+ * The route table and dispatcher of a class annotated with {@link WebService}
+ * as generated at compile time by {@link WebServiceProcessor}. If a generated
+ * route table is present for a service the handler neither needs to scan all
+ * methods of the service nor to invoke them via reflection.
+ *
+ * @param <T> the type of the web service
+ * @author Florian Frankenberger
+ */
+public interface GeneratedRoutes<T> {
+
+    /**
+     * the suffix appended to the binary name of the web service class
+     * to get the name of the generated class
+     */
+    String CLASS_NAME_SUFFIX = "_LightWsRoutes";
+
+    /**
+     * all mapped methods of the web service
+     *
+     * @return
+     */
+    List<GeneratedRoute> getRoutes();
+
+    /**
+     * invokes the method of the route with the given index
+     *
+     * @param routeIndex the index of the route in {@link #getRoutes()}
+     * @param service the service to invoke the method on
+     * @param parameters the parameters to pass
+     * @return the result of the method (null for void methods)
+     * @throws Exception any failure of the method itself is wrapped
+     *                   in an InvocationTargetException
+     */
+    Object invoke(int routeIndex, T service, Object[] parameters) throws Exception;
+
+}
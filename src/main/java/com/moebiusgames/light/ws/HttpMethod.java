@@ -30,7 +30,9 @@ package com.moebiusgames.light.ws;
 enum HttpMethod {
 
     GET,
-    POST;
+    POST,
+    PATCH,
+    HEAD;
 
     public boolean matches(String rawHttpMethod) {
         return this.name().equalsIgnoreCase(rawHttpMethod.trim());
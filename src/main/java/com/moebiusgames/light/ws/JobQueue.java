@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The bounded queue and the threads executing the calls of
+ * a {@link Queued} method
+ *
+ * @author Florian Frankenberger
+ */
+class JobQueue {
+
+    private final ThreadPoolExecutor executor;
+    private final JobStore jobStore;
+    private final String statusPath;
+    private final int retryAfterSeconds;
+
+    public JobQueue(Method method, Queued queued, JobStore jobStore, String statusPath) {
+        if (queued.threads() < 1 || queued.queueSize() < 1) {
+            throw new IllegalStateException("Queued method " + method
+                    + " needs at least one thread and a queue size of at least one");
+        }
+        this.jobStore = jobStore;
+        this.statusPath = statusPath;
+        this.retryAfterSeconds = queued.retryAfterSeconds();
+
+        this.executor = new ThreadPoolExecutor(queued.threads(), queued.threads(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queued.queueSize()),
+                new DaemonThreadFactory("light-ws-queue-" + method.getName() + "-"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * queues the given call
+     *
+     * @param call the call to execute
+     * @return either a response with status 202 containing the job or
+     *         a response with status 503 if the queue (or the store of the
+     *         jobs) is full
+     */
+    public Response<QueuedJob> submit(Callable<Object> call) {
+        final QueuedJob job = new QueuedJob(UUID.randomUUID().toString());
+        if (!jobStore.add(job)) {
+            return unavailable();
+        }
+        try {
+            executor.execute(() -> {
+                job.run(call);
+                jobStore.finished(job);
+            });
+        } catch (RejectedExecutionException e) {
+            jobStore.remove(job);
+            return unavailable();
+        }
+        return new Response<>(job, HttpServletResponse.SC_ACCEPTED)
+                .setHeader("Location", statusPath + "/" + job.getId());
+    }
+
+    private Response<QueuedJob> unavailable() {
+        return new Response<QueuedJob>(null, HttpServletResponse.SC_SERVICE_UNAVAILABLE)
+                .setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+}
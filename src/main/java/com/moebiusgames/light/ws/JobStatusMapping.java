@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.reflect.Method;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Maps GET requests on &lt;statusPath&gt;/&lt;id&gt; to the
+ * state of the job with the given id
+ *
+ * @author Florian Frankenberger
+ */
+class JobStatusMapping extends WebServiceMapping {
+
+    private static final Method GET_STATUS_METHOD;
+
+    static {
+        try {
+            GET_STATUS_METHOD = JobStore.class.getMethod("getStatus", String.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("JobStore has no status method", e);
+        }
+    }
+
+    private final JobStore jobStore;
+
+    public JobStatusMapping(String pathPrefix, String statusPath, JobStore jobStore) {
+        super(HttpMethod.GET, pathPrefix, statusPath + "/{id}", GET_STATUS_METHOD);
+        this.jobStore = jobStore;
+    }
+
+    @Override
+    protected void addParameters(HttpServletRequest request, Object[] parameters) {
+        //the id is a path parameter
+    }
+
+    @Override
+    protected Object invoke(Object service, Object[] parameters) throws Exception {
+        return getMethod().invoke(jobStore, parameters);
+    }
+
+}
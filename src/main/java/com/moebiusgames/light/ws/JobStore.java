@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Keeps the jobs of {@link Queued} methods so that clients can query their
+ * state. Jobs that are queued or running are always kept, finished ones
+ * are dropped once their result has been kept for a while (or earlier if
+ * room is needed for new jobs).
+ *
+ * @author Florian Frankenberger
+ */
+class JobStore {
+
+    private static final int DEFAULT_CAPACITY = 1000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final int capacity;
+    private final long ttlNanos;
+
+    private final Map<String, QueuedJob> jobs = new HashMap<>();
+    //in the order they finished
+    private final ArrayDeque<FinishedJob> finishedJobs = new ArrayDeque<>();
+
+    public JobStore() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param capacity the maximum number of jobs kept
+     * @param ttlMillis the time the result of a finished job is kept
+     */
+    public JobStore(int capacity, long ttlMillis) {
+        if (capacity < 1 || ttlMillis < 0) {
+            throw new IllegalArgumentException("A job store needs a capacity of at least one and a ttl >= 0");
+        }
+        this.capacity = capacity;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * adds a new job - finished jobs are dropped to make room for it,
+     * unfinished ones never
+     *
+     * @param job
+     * @return false if the store is full of unfinished jobs
+     */
+    public synchronized boolean add(QueuedJob job) {
+        evictExpired(System.nanoTime());
+        while (jobs.size() >= capacity && !finishedJobs.isEmpty()) {
+            jobs.remove(finishedJobs.poll().id);
+        }
+        if (jobs.size() >= capacity) {
+            return false;
+        }
+        jobs.put(job.getId(), job);
+        return true;
+    }
+
+    /**
+     * marks a job as finished, so it can be dropped after the ttl
+     *
+     * @param job
+     */
+    public synchronized void finished(QueuedJob job) {
+        if (jobs.containsKey(job.getId())) {
+            finishedJobs.add(new FinishedJob(job.getId(), System.nanoTime()));
+        }
+    }
+
+    public synchronized void remove(QueuedJob job) {
+        jobs.remove(job.getId());
+    }
+
+    public synchronized QueuedJob get(String id) {
+        evictExpired(System.nanoTime());
+        return jobs.get(id);
+    }
+
+    private void evictExpired(long now) {
+        FinishedJob eldest;
+        while ((eldest = finishedJobs.peek()) != null && now - eldest.finishedNanos >= ttlNanos) {
+            finishedJobs.poll();
+            jobs.remove(eldest.id);
+        }
+    }
+
+    /**
+     * used by the status mapping
+     *
+     * @param id the id of the job
+     * @return
+     */
+    public Response<QueuedJob> getStatus(@GetParameter("id") String id) {
+        final QueuedJob job = get(id);
+        return job == null
+                ? new Response<>(null, HttpServletResponse.SC_NOT_FOUND)
+                : new Response<>(job);
+    }
+
+    private static final class FinishedJob {
+
+        private final String id;
+        private final long finishedNanos;
+
+        FinishedJob(String id, long finishedNanos) {
+            this.id = id;
+            this.finishedNanos = finishedNanos;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An iterator that decodes the elements of a newline delimited JSON
+ * (or top level JSON array) post body one at a time. So only the current
+ * element is held in memory no matter how large the posted body is.
+ *
+ * @author Florian Frankenberger
+ */
+class JsonStreamIterator<T> implements Iterator<T>, Closeable {
+
+    private final MappingIterator<T> iterator;
+
+    public JsonStreamIterator(MappingIterator<T> iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return iterator.hasNextValue();
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedPostDataException("Could not decode next element of post data", e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return iterator.nextValue();
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedPostDataException("Could not decode next element of post data", e);
+        }
+    }
+
+    /**
+     * wraps this iterator in a sequential stream that closes this
+     * iterator when the stream is closed
+     *
+     * @return
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not close post data stream", e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+
+}
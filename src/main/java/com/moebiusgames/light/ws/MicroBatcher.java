@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects concurrent calls of a {@link Batched} method into batches.
+ * The first call of a batch becomes its leader: it waits until either the
+ * batch is full or the linger time is over and then invokes the method
+ * for the whole batch on its own thread, while all other callers just wait
+ * for their share of the result.
+ *
+ * @author Florian Frankenberger
+ */
+class MicroBatcher {
+
+    private final Method method;
+    private final MethodInvoker invoker;
+    private final int maxSize;
+    private final long lingerNanos;
+
+    private final Object lock = new Object();
+    private Batch current = null;
+
+    public MicroBatcher(Method method, MethodInvoker invoker, int maxSize, long lingerMicros) {
+        if (maxSize < 1) {
+            throw new IllegalStateException("Batch size of method " + method + " must be at least 1");
+        }
+        if (lingerMicros < 0) {
+            throw new IllegalStateException("Linger time of method " + method + " must not be negative");
+        }
+        this.method = method;
+        this.invoker = invoker;
+        this.maxSize = maxSize;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+    }
+
+    /**
+     * adds the item to the current batch and waits until the batch
+     * has been executed
+     *
+     * @param service the service to invoke the method on
+     * @param item the item to add to the batch
+     * @return the result for this very item
+     * @throws Exception if the batch or this single item failed
+     */
+    public Object submit(Object service, Object item) throws Exception {
+        final Batch batch;
+        final int index;
+        final boolean leader;
+        synchronized (lock) {
+            leader = current == null;
+            if (leader) {
+                current = new Batch(maxSize);
+            }
+            batch = current;
+            index = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxSize) {
+                current = null;
+                lock.notifyAll();
+            }
+        }
+
+        if (leader) {
+            awaitBatchClosed(batch);
+            batch.execute(service);
+        }
+        return batch.getResult(index);
+    }
+
+    private void awaitBatchClosed(Batch batch) {
+        boolean interrupted = false;
+        synchronized (lock) {
+            final long deadline = System.nanoTime() + lingerNanos;
+            while (current == batch) {
+                final long nanosLeft = deadline - System.nanoTime();
+                if (nanosLeft <= 0) {
+                    current = null;
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, nanosLeft);
+                } catch (InterruptedException e) {
+                    //we still need to execute the batch for all the others
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Batch {
+
+        private final List<Object> items;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private List<?> results = null;
+        private Throwable failure = null;
+
+        public Batch(int maxSize) {
+            this.items = new ArrayList<>(maxSize);
+        }
+
+        public void execute(Object service) {
+            try {
+                final Object result = invoker.invoke(service, new Object[]{Collections.unmodifiableList(items)});
+                if (result == null) {
+                    results = Collections.nCopies(items.size(), null);
+                } else if (result instanceof List && ((List<?>) result).size() == items.size()) {
+                    results = (List<?>) result;
+                } else {
+                    failure = new IllegalStateException("Batched method " + method
+                            + " did not return exactly one result per element");
+                }
+            } catch (InvocationTargetException e) {
+                failure = e.getCause();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        public Object getResult(int index) throws Exception {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    //the leader is already working on our item, so we wait anyway
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            final Object result = failure == null ? results.get(index) : null;
+            if (failure != null || result instanceof Throwable) {
+                throw new InvocationTargetException(failure != null ? failure : (Throwable) result);
+            }
+            return result;
+        }
+
+    }
+
+}
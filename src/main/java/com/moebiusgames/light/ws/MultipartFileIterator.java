@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An iterator over the files of a multipart post that reads them live from
+ * the request. Nothing is spooled to disk: every file is only readable until
+ * the next one is requested, so the client can only send as fast as the
+ * method consumes the data.
+ *
+ * @author Florian Frankenberger
+ */
+class MultipartFileIterator implements Iterator<UploadedFile>, Closeable {
+
+    private final MultipartStream parts;
+    private final InputStream in;
+
+    private boolean pending;
+    private boolean finished = false;
+
+    /**
+     * @param parts the parts - positioned at a file if pending is true
+     * @param pending true if the current part of the given stream is the
+     *                first file
+     * @param in the body of the request
+     */
+    public MultipartFileIterator(MultipartStream parts, boolean pending, InputStream in) {
+        this.parts = parts;
+        this.pending = pending;
+        this.in = in;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            //form fields after the first file are skipped
+            while (parts.nextPart()) {
+                if (parts.isFile() && !parts.getFileName().isEmpty()) {
+                    pending = true;
+                    return true;
+                }
+            }
+            finished = true;
+            return false;
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedPostDataException("Could not read next part of post data", e);
+        }
+    }
+
+    @Override
+    public UploadedFile next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        pending = false;
+        return new UploadedFile(parts.getBody(), parts.getFileName(),
+                parts.getContentType() == null ? "application/octet-stream" : parts.getContentType(),
+                parts.getName());
+    }
+
+    /**
+     * wraps this iterator in a sequential stream that closes this
+     * iterator when the stream is closed
+     *
+     * @return
+     */
+    public Stream<UploadedFile> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not close post data stream", e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        pending = false;
+        parts.close();
+        in.close();
+    }
+
+}
@@ -31,7 +31,10 @@ import java.util.List;
  * Splits a multipart body into multipart sections
  *
  * @author Florian Frankenberger
+ * @deprecated multipart bodies are now split in a single pass while they
+ *             are read from the request, splitters are not used anymore
  */
+@Deprecated
 public interface MultipartSplitter {
 
     /**
@@ -0,0 +1,350 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the parts of a multipart/form-data body in a single pass directly
+ * from the request. The body of the current part is available as stream
+ * that ends at the next boundary, so parts never have to be stored as a
+ * whole before they are split.
+ *
+ * @author Florian Frankenberger
+ */
+final class MultipartStream {
+
+    private static final Pattern BOUNDARY_PATTERN = Pattern.compile("boundary=(\"([^\"]+)\"|[^;\\s]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISPOSITION_PARAMETER_PATTERN = Pattern.compile(";\\s*(name|filename)=(\"((?:[^\"\\\\]|\\\\.)*)\"|[^;\\s]*)", Pattern.CASE_INSENSITIVE);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE_LENGTH = 8 * 1024;
+    private static final int MAX_HEADER_LINES = 32;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    //pooled buffer - its array is used from start (inclusive) to end (exclusive)
+    private ByteBuffer pooledBuffer;
+    private final byte[] buffer;
+    private final int start;
+    private final int end;
+    private int head;
+    private int tail;
+    private boolean eof = false;
+
+    private boolean inBody = true; //the preamble is skipped like the body of a part
+    private boolean finished = false;
+
+    private String name;
+    private String fileName;
+    private String contentType;
+
+    private final InputStream body = new InputStream() {
+
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return readBody(bytes, offset, length);
+        }
+
+    };
+
+    /**
+     * @param in the body of the request
+     * @param contentType the content type of the request (containing the boundary)
+     * @throws IllegalArgumentException if the content type has no boundary
+     */
+    public MultipartStream(InputStream in, String contentType) {
+        final String boundary = getBoundary(contentType);
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        final int capacity = Math.max(BUFFER_SIZE, delimiter.length * 4);
+        this.pooledBuffer = BufferPools.acquire(capacity);
+        this.buffer = pooledBuffer.array();
+        this.start = pooledBuffer.arrayOffset();
+        this.end = start + capacity;
+        this.head = start;
+        this.tail = start;
+
+        //the first boundary is not preceded by a line break
+        buffer[tail++] = '\r';
+        buffer[tail++] = '\n';
+    }
+
+    /**
+     * extracts the boundary (without the leading dashes) from the content type
+     *
+     * @param contentType the content type of the request
+     * @return
+     * @throws IllegalArgumentException if the content type has no boundary
+     */
+    static String getBoundary(String contentType) {
+        final Matcher matcher = BOUNDARY_PATTERN.matcher(contentType);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("multipart not properly structured");
+        }
+        final String boundary = matcher.group(2) != null ? matcher.group(2) : matcher.group(1);
+        if (boundary.trim().isEmpty()) {
+            throw new IllegalArgumentException("delimeter must not be blank");
+        }
+        return boundary;
+    }
+
+    /**
+     * moves on to the next part (skipping whatever has not been read of the
+     * current one)
+     *
+     * @return false if there are no more parts
+     * @throws IOException
+     */
+    public boolean nextPart() throws IOException {
+        if (finished) {
+            return false;
+        }
+        while (inBody) {
+            skipBody();
+        }
+        if (!fill(2)) {
+            throw malformed("multipart body ended unexpectedly");
+        }
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            return false;
+        }
+        //rest of the boundary line (padding is allowed)
+        readLine();
+
+        name = null;
+        fileName = null;
+        contentType = null;
+        String line;
+        int lines = 0;
+        while (!(line = readLine()).isEmpty()) {
+            if (++lines > MAX_HEADER_LINES) {
+                throw malformed("too many headers in multipart section");
+            }
+            final int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            final String headerName = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            final String value = line.substring(colon + 1).trim();
+            if (headerName.equals("content-disposition")) {
+                final Matcher matcher = DISPOSITION_PARAMETER_PATTERN.matcher(value);
+                while (matcher.find()) {
+                    final String parameterValue = matcher.group(3) != null
+                            ? matcher.group(3).replaceAll("\\\\(.)", "$1")
+                            : matcher.group(2);
+                    if (matcher.group(1).equalsIgnoreCase("name")) {
+                        name = parameterValue;
+                    } else {
+                        fileName = parameterValue;
+                    }
+                }
+            } else if (headerName.equals("content-type")) {
+                contentType = value;
+            }
+        }
+        inBody = true;
+        return true;
+    }
+
+    /**
+     * the name of the form field of the current part
+     *
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * the file name of the current part or null if the part is no file
+     *
+     * @return
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * the content type of the current part or null if none was given
+     *
+     * @return
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * the current part is a file if it has a file name
+     *
+     * @return
+     */
+    public boolean isFile() {
+        return fileName != null;
+    }
+
+    /**
+     * the body of the current part - it ends at the next boundary
+     *
+     * @return
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    private void skipBody() throws IOException {
+        while (readBody(null, 0, Integer.MAX_VALUE) >= 0) {
+            //skipping
+        }
+    }
+
+    /**
+     * returns the buffer to the pool - the stream can't be used anymore
+     */
+    public void close() {
+        final ByteBuffer released = pooledBuffer;
+        pooledBuffer = null;
+        finished = true;
+        inBody = false;
+        BufferPools.release(released);
+    }
+
+    private int readBody(byte[] bytes, int offset, int length) throws IOException {
+        if (!inBody) {
+            return -1;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        while (true) {
+            final int index = indexOfDelimiter();
+            if (index >= 0) {
+                if (index == head) {
+                    head += delimiter.length;
+                    inBody = false;
+                    return -1;
+                }
+                return copy(bytes, offset, Math.min(length, index - head));
+            }
+            //everything in front of a possibly incomplete delimiter is body
+            final int safe = tail - delimiter.length + 1;
+            if (safe > head) {
+                return copy(bytes, offset, Math.min(length, safe - head));
+            }
+            if (!fill(tail - head + 1)) {
+                throw malformed("multipart body ended without closing boundary");
+            }
+        }
+    }
+
+    private int copy(byte[] bytes, int offset, int length) {
+        if (bytes != null) {
+            System.arraycopy(buffer, head, bytes, offset, length);
+        }
+        head += length;
+        return length;
+    }
+
+    private int indexOfDelimiter() {
+        final int last = tail - delimiter.length;
+        outer:
+        for (int i = head; i <= last; ++i) {
+            if (buffer[i] != delimiter[0]) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; ++j) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private String readLine() throws IOException {
+        //offset from head up to which no line break has been found yet
+        int scanned = 0;
+        while (true) {
+            for (int i = head + scanned; i < tail - 1; ++i) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    final String line = new String(buffer, head, i - head, StandardCharsets.UTF_8);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            if (tail - head > MAX_HEADER_LINE_LENGTH) {
+                throw malformed("multipart header line is too long");
+            }
+            scanned = Math.max(0, tail - head - 1);
+            if (!fill(tail - head + 1)) {
+                throw malformed("multipart body ended unexpectedly");
+            }
+        }
+    }
+
+    /**
+     * makes sure that at least the given number of bytes is buffered
+     *
+     * @return false if the body ended before
+     */
+    private boolean fill(int count) throws IOException {
+        if (tail - head >= count) {
+            return true;
+        }
+        if (head > start) {
+            System.arraycopy(buffer, head, buffer, start, tail - head);
+            tail -= head - start;
+            head = start;
+        }
+        while (tail - start < count && !eof) {
+            final int read = in.read(buffer, tail, end - tail);
+            if (read < 0) {
+                eof = true;
+            } else {
+                tail += read;
+            }
+        }
+        return tail - start >= count;
+    }
+
+    private static IllegalArgumentException malformed(String message) {
+        return new MalformedPostDataException(message, null);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Holds the object mapper shared by all web services. It is only created
+ * when it is needed for the first time (creating it is not exactly cheap),
+ * so services that never read or write JSON don't pay for it. A differently
+ * configured mapper can be set here or per handler with
+ * {@link WebServiceHandler#setObjectMapper(ObjectMapper)}.
+ *
+ * @author Florian Frankenberger
+ */
+public final class ObjectMappers {
+
+    private static volatile ObjectMapper objectMapper = null;
+
+    private ObjectMappers() {
+    }
+
+    /**
+     * returns the shared object mapper and creates it if necessary
+     *
+     * @return
+     */
+    public static ObjectMapper getDefault() {
+        ObjectMapper result = objectMapper;
+        if (result == null) {
+            synchronized (ObjectMappers.class) {
+                result = objectMapper;
+                if (result == null) {
+                    result = new ObjectMapper().registerModule(new JavaTimeModule());
+                    objectMapper = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * replaces the shared object mapper. Should be called before the first
+     * handler is started.
+     *
+     * @param objectMapper the mapper to use or null to go back to the default one
+     */
+    public static void setDefault(ObjectMapper objectMapper) {
+        ObjectMappers.objectMapper = objectMapper;
+    }
+
+}
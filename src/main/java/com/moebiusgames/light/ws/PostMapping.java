@@ -41,4 +41,13 @@ public @interface PostMapping {
 
     String value() default "";
 
+    /**
+     * the priority of requests to this mapping when they have to wait
+     * for a {@link RequestScheduler} (each level doubles the share of
+     * the requests, so higher values are executed first)
+     *
+     * @return
+     */
+    int priority() default 0;
+
 }
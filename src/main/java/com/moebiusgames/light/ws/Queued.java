@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a method that is also annotated with {@link PostMapping}
+ * to execute it in the background. The post parameters are bound
+ * right away, then the call is put into a bounded queue and the client
+ * immediately gets a 202 with the id and state of the job (and a Location
+ * header pointing to the status of the job). If the queue is full the client
+ * gets a 503 with a Retry-After header instead.
+ * <p>
+ * The state (and later the result) of a job can be retrieved via
+ * GET on &lt;statusPath&gt;/&lt;id&gt;. Note that the HttpServletRequest
+ * must not be used by queued methods as the request is already
+ * answered when the method gets called.
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Queued {
+
+    /**
+     * the number of threads that execute the queued calls
+     *
+     * @return
+     */
+    int threads() default 1;
+
+    /**
+     * the maximum number of calls waiting for execution
+     *
+     * @return
+     */
+    int queueSize() default 100;
+
+    /**
+     * the seconds a client is asked to wait before retrying
+     * when the queue is full
+     *
+     * @return
+     */
+    int retryAfterSeconds() default 5;
+
+    /**
+     * the path (relative to the path of the web service) where the
+     * state of the jobs can be retrieved
+     *
+     * @return
+     */
+    String statusPath() default "/jobs";
+
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The state of a call to a {@link Queued} method
+ *
+ * @author Florian Frankenberger
+ */
+public class QueuedJob {
+
+    private static final Logger LOGGER = Logger.getLogger(QueuedJob.class.getCanonicalName());
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private final String id;
+    private volatile State state = State.QUEUED;
+    private volatile Integer statusCode = null;
+    private volatile Object result = null;
+
+    QueuedJob(String id) {
+        this.id = id;
+    }
+
+    void run(Callable<Object> call) {
+        state = State.RUNNING;
+        try {
+            Object callResult = call.call();
+            int callStatusCode = HttpServletResponse.SC_OK;
+            if (callResult instanceof Response) {
+                callStatusCode = ((Response<?>) callResult).getStatusCode();
+                callResult = ((Response<?>) callResult).getResponseObject();
+            }
+            result = callResult;
+            statusCode = callStatusCode;
+            state = State.DONE;
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Queued job " + id + " failed",
+                    t instanceof InvocationTargetException ? t.getCause() : t);
+            statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            state = State.FAILED;
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * the status code the call would have been answered with
+     * or null as long as the job is not finished
+     *
+     * @return
+     */
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of calls a single client can make to a method
+ * annotated with {@link GetMapping} or {@link PostMapping}. If this
+ * annotation is present on a class annotated with {@link WebService}
+ * the limit applies to every mapping of the class that does not declare
+ * a limit of its own (each mapping still counts on its own).
+ * <p>
+ * Clients are told apart by their remote address or by a header (see
+ * {@link WebServiceHandler#setRateLimitKeyHeader(java.lang.String)}). Calls
+ * exceeding the limit are answered with 429 and a Retry-After header before
+ * any parameter is bound.
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * the number of calls per second a client can make in the long run
+     *
+     * @return
+     */
+    double permitsPerSecond();
+
+    /**
+     * the number of calls a client can make at once
+     *
+     * @return
+     */
+    int burst() default 1;
+
+    /**
+     * the number of clients tracked separately, once reached all further
+     * clients share one limit until idle clients have been forgotten
+     *
+     * @return
+     */
+    int maxClients() default 100_000;
+
+}
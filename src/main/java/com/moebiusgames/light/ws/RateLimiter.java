@@ -0,0 +1,133 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per client. Each bucket is a single atomic value (the
+ * time at which the bucket is completely refilled again - also known as
+ * generic cell rate algorithm) so taking a token is a single compare and set.
+ * As a completely refilled bucket behaves exactly like a missing bucket,
+ * such buckets are evicted from time to time. The number of buckets is
+ * capped as well: once the cap is reached new clients share one bucket
+ * until buckets have been evicted again.
+ *
+ * @author Florian Frankenberger
+ */
+class RateLimiter {
+
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+
+    private final int maxBuckets;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflowBucket;
+    private final AtomicLong nextEviction;
+
+    /**
+     * @param permitsPerSecond
+     * @param burst
+     * @param maxBuckets the maximum number of clients tracked separately
+     */
+    public RateLimiter(double permitsPerSecond, int burst, int maxBuckets) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxBuckets < 1) {
+            throw new IllegalArgumentException("Rate limit needs a positive rate, a burst and "
+                    + "a number of buckets of at least 1");
+        }
+        this.maxBuckets = maxBuckets;
+        this.overflowBucket = new AtomicLong(System.nanoTime());
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.capacityNanos = emissionIntervalNanos * burst;
+        this.nextEviction = new AtomicLong(System.nanoTime() + EVICTION_INTERVAL_NANOS);
+    }
+
+    /**
+     * tries to take a token from the bucket of the given client
+     *
+     * @param key the key of the client
+     * @return 0 if a token was taken or the nanoseconds the client has
+     *         to wait until the next token is available
+     */
+    public long tryAcquire(String key) {
+        final long now = System.nanoTime();
+        evictIdleBuckets(now, false);
+
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null && buckets.size() >= maxBuckets) {
+            evictIdleBuckets(now, true);
+        }
+        if (bucket == null && buckets.size() >= maxBuckets) {
+            //too many clients - the ones not tracked yet are limited together
+            bucket = overflowBucket;
+        } else if (bucket == null) {
+            final AtomicLong newBucket = new AtomicLong(now);
+            bucket = buckets.putIfAbsent(key, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+
+        while (true) {
+            final long refilledAt = bucket.get();
+            final long newRefilledAt = Math.max(refilledAt, now) + emissionIntervalNanos;
+            final long waitNanos = newRefilledAt - now - capacityNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(refilledAt, newRefilledAt)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * the number of buckets currently kept in memory
+     *
+     * @return
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private void evictIdleBuckets(long now, boolean full) {
+        final long evictAt = nextEviction.get();
+        //only one thread sweeps at a time (a full map is swept right away)
+        if ((full || now - evictAt >= 0) && nextEviction.compareAndSet(evictAt, now + EVICTION_INTERVAL_NANOS)) {
+            final Iterator<AtomicLong> iterator = buckets.values().iterator();
+            while (iterator.hasNext()) {
+                if (now - iterator.next().get() >= 0) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+}
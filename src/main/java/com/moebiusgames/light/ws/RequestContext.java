@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Declare a parameter of this type in a method annotated with
+ * {@link GetMapping} or {@link PostMapping} to get the deadline of the
+ * current request and to find out if the request has been abandoned
+ * (either because the deadline has passed or because the connection has
+ * been closed).
+ * <p>
+ * A closed connection is only noticed once the server has closed it itself
+ * (e.g. because a write failed). A client that merely closes its socket is
+ * not noticed while nothing is read from or written to the connection.
+ * <p>
+ * When a request is abandoned the thread executing it is interrupted, so
+ * blocking calls return early. Long running computations should check
+ * {@link #isCancelled()} (or call {@link #checkCancelled()}) from time to time.
+ *
+ * @author Florian Frankenberger
+ */
+public class RequestContext {
+
+    /**
+     * the header a client can set to the number of milliseconds it is
+     * willing to wait for the response
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    public enum CancellationReason {
+        DEADLINE_EXCEEDED,
+        /**
+         * the connection of the request has been closed on the server side
+         */
+        CLIENT_DISCONNECTED
+    }
+
+    private final long deadlineNanos;
+    private final BooleanSupplier connectionOpen;
+
+    private volatile CancellationReason cancellationReason = null;
+    private Thread worker = null;
+
+    RequestContext(long deadlineNanos, BooleanSupplier connectionOpen) {
+        this.deadlineNanos = deadlineNanos;
+        this.connectionOpen = connectionOpen;
+    }
+
+    public boolean hasDeadline() {
+        return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    /**
+     * the time left until the deadline
+     *
+     * @return the remaining milliseconds (0 if the deadline already
+     *         passed) or Long.MAX_VALUE if there is no deadline
+     */
+    public long getRemainingMillis() {
+        if (!hasDeadline()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isCancelled() {
+        return cancellationReason != null;
+    }
+
+    /**
+     * @return why the request has been abandoned or null if it is not
+     */
+    public CancellationReason getCancellationReason() {
+        return cancellationReason;
+    }
+
+    /**
+     * throws a CancellationException if the request has been abandoned
+     *
+     * @throws CancellationException
+     */
+    public void checkCancelled() throws CancellationException {
+        final CancellationReason reason = cancellationReason;
+        if (reason != null) {
+            throw new CancellationException("Request was cancelled: " + reason);
+        }
+    }
+
+    /**
+     * cancels the request if the deadline has passed or the
+     * connection has been closed
+     *
+     * @param nowNanos
+     * @return true if the request is cancelled
+     */
+    boolean checkExpired(long nowNanos) {
+        if (hasDeadline() && nowNanos - deadlineNanos >= 0) {
+            cancel(CancellationReason.DEADLINE_EXCEEDED);
+        } else if (!connectionOpen.getAsBoolean()) {
+            cancel(CancellationReason.CLIENT_DISCONNECTED);
+        }
+        return isCancelled();
+    }
+
+    synchronized void cancel(CancellationReason reason) {
+        if (cancellationReason == null) {
+            cancellationReason = reason;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * marks the current thread as the one executing the request
+     */
+    synchronized void attach() {
+        worker = Thread.currentThread();
+    }
+
+    /**
+     * marks the current thread as done with the request
+     */
+    synchronized void detach() {
+        if (worker != null && cancellationReason != null) {
+            //the interrupt was meant for the request, not for whatever the thread does next
+            Thread.interrupted();
+        }
+        worker = null;
+    }
+
+}
@@ -0,0 +1,276 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Limits the number of requests a handler executes at the same time. Requests
+ * that have to wait are parked asynchronously (without holding a thread) and
+ * are shared fairly between tenants (identified by a header) and the
+ * priorities of their mappings (see {@link GetMapping#priority()} and
+ * {@link PostMapping#priority()}) by start-time fair queuing. The share of a
+ * tenant is its weight, each priority level above another one doubles the
+ * share of its requests - so requests with a higher priority are executed
+ * first, but requests with a lower priority are never starved.
+ * <p>
+ * Use {@link WebServiceHandler#setRequestScheduler(com.moebiusgames.light.ws.RequestScheduler)}
+ * to activate it. Mappings with a {@link Bulkhead} are not scheduled as they
+ * are already queued by their bulkhead.
+ *
+ * @author Florian Frankenberger
+ */
+public class RequestScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(RequestScheduler.class.getCanonicalName());
+
+    private static final String DEFAULT_TENANT = "";
+    private static final int MAX_IDLE_FLOWS = 10000;
+    private static final int MAX_PRIORITY_LEVELS = 30;
+
+    private final int maxConcurrent;
+    private final int maxQueueSize;
+    private final String tenantHeader;
+
+    private final PriorityQueue<QueuedRequest> queue = new PriorityQueue<>();
+    private final Map<String, Double> tenantWeights = new HashMap<>();
+    //by priority and tenant
+    private final Map<String, Double> flowFinishTags = new HashMap<>();
+
+    private int running = 0;
+    private long sequence = 0;
+    private double virtualTime = 0;
+
+    /**
+     * creates a scheduler that shares requests with the same priority
+     * in order of arrival
+     *
+     * @param maxConcurrent the maximum number of requests executed at once
+     * @param maxQueueSize the maximum number of waiting requests, further
+     *                     requests are answered with 503
+     */
+    public RequestScheduler(int maxConcurrent, int maxQueueSize) {
+        this(maxConcurrent, maxQueueSize, null);
+    }
+
+    /**
+     * @param maxConcurrent the maximum number of requests executed at once
+     * @param maxQueueSize the maximum number of waiting requests, further
+     *                     requests are answered with 503
+     * @param tenantHeader the header identifying the tenant of a request
+     *                     or null if all requests belong to the same tenant
+     */
+    public RequestScheduler(int maxConcurrent, int maxQueueSize, String tenantHeader) {
+        if (maxConcurrent < 1 || maxQueueSize < 0) {
+            throw new IllegalArgumentException("At least one concurrent request is needed "
+                    + "and the queue size must not be negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueSize = maxQueueSize;
+        this.tenantHeader = tenantHeader;
+    }
+
+    /**
+     * sets the weight of a tenant. A tenant with weight 2 gets twice as many
+     * requests executed as a tenant with weight 1 (if both have requests
+     * waiting). Tenants without an explicit weight have weight 1.
+     *
+     * @param tenant the value of the tenant header
+     * @param weight the weight of the tenant
+     */
+    public synchronized void setTenantWeight(String tenant, double weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        tenantWeights.put(tenant, weight);
+    }
+
+    /**
+     * the number of requests currently executed
+     *
+     * @return
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * the number of requests currently waiting
+     *
+     * @return
+     */
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    /**
+     * executes the given task either right away or as soon as it is its turn
+     *
+     * @param request
+     * @param response
+     * @param priority the priority of the request
+     * @param task the task executing the request
+     * @param onDone called after the task is done or right away if
+     *               the request is rejected
+     */
+    void execute(HttpServletRequest request, HttpServletResponse response,
+            int priority, Runnable task, Runnable onDone) {
+        final boolean rejected;
+        synchronized (this) {
+            if (running < maxConcurrent) {
+                running++;
+                rejected = false;
+            } else if (queue.size() < maxQueueSize) {
+                final AsyncContext asyncContext = request.startAsync(request, response);
+                asyncContext.setTimeout(0);
+                queue.add(new QueuedRequest(nextFinishTag(getTenant(request), priority),
+                        sequence++, asyncContext, task, onDone));
+                return;
+            } else {
+                rejected = true;
+            }
+        }
+
+        if (rejected) {
+            onDone.run();
+            try {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not send status 503 to client", e);
+            }
+            return;
+        }
+
+        try {
+            task.run();
+        } finally {
+            onDone.run();
+            release();
+        }
+    }
+
+    /**
+     * hands the slot of a finished request over to the next waiting
+     * request or frees it if none is waiting
+     */
+    private void release() {
+        while (true) {
+            final QueuedRequest next;
+            synchronized (this) {
+                next = queue.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+                virtualTime = Math.max(virtualTime, next.finishTag);
+            }
+
+            try {
+                next.asyncContext.start(() -> {
+                    try {
+                        next.task.run();
+                    } finally {
+                        next.onDone.run();
+                        next.asyncContext.complete();
+                        release();
+                    }
+                });
+                return;
+            } catch (RuntimeException e) {
+                //the request can't be resumed anymore, so give the slot to the next one
+                LOGGER.log(Level.WARNING, "Could not resume waiting request", e);
+                next.onDone.run();
+            }
+        }
+    }
+
+    private String getTenant(HttpServletRequest request) {
+        if (tenantHeader == null) {
+            return DEFAULT_TENANT;
+        }
+        final String tenant = request.getHeader(tenantHeader);
+        return tenant == null ? DEFAULT_TENANT : tenant;
+    }
+
+    //guarded by this
+    double nextFinishTag(String tenant, int priority) {
+        if (flowFinishTags.size() > MAX_IDLE_FLOWS) {
+            //flows that are not ahead of the virtual time behave like new ones
+            final Iterator<Double> iterator = flowFinishTags.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() <= virtualTime) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        final int level = Math.max(-MAX_PRIORITY_LEVELS, Math.min(MAX_PRIORITY_LEVELS, priority));
+        final String flow = level + "/" + tenant;
+        final Double lastFinishTag = flowFinishTags.get(flow);
+        final double startTag = lastFinishTag == null
+                ? virtualTime
+                : Math.max(virtualTime, lastFinishTag);
+        final double weight = tenantWeights.getOrDefault(tenant, 1.0) * Math.pow(2, level);
+        final double finishTag = startTag + 1.0 / weight;
+        flowFinishTags.put(flow, finishTag);
+        return finishTag;
+    }
+
+    private static class QueuedRequest implements Comparable<QueuedRequest> {
+
+        private final double finishTag;
+        private final long sequence;
+        private final AsyncContext asyncContext;
+        private final Runnable task;
+        private final Runnable onDone;
+
+        public QueuedRequest(double finishTag, long sequence,
+                AsyncContext asyncContext, Runnable task, Runnable onDone) {
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.asyncContext = asyncContext;
+            this.task = task;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public int compareTo(QueuedRequest other) {
+            if (finishTag != other.finishTag) {
+                return Double.compare(finishTag, other.finishTag);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
@@ -24,6 +24,9 @@
 
 package com.moebiusgames.light.ws;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.servlet.http.HttpServletResponse;
 
 /**
@@ -33,6 +36,9 @@ public class Response<T> {
 
     private final T responseObject;
     private int statusCode = HttpServletResponse.SC_OK;
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private boolean immutable = false;
+    private Object version = null;
 
     public Response() {
         this(null);
@@ -62,6 +68,61 @@ public class Response<T> {
         return statusCode;
     }
 
+    /**
+     * sets an additional header that is sent with this response
+     *
+     * @param name the name of the header
+     * @param value the value of the header
+     * @return this response
+     */
+    public Response<T> setHeader(String name, String value) {
+        this.headers.put(name, value);
+        return this;
+    }
+
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * marks the response object as immutable: its encoded form is cached
+     * and reused as long as the same object is returned
+     *
+     * @return this response
+     * @see ImmutableResult
+     */
+    public Response<T> markImmutable() {
+        return markImmutable(null);
+    }
+
+    /**
+     * marks the response object as immutable in the given version: the
+     * encoded form is reused for every response object of an equal version
+     *
+     * @param version the version of the response object or null to
+     *                identify it by identity
+     * @return this response
+     * @see ImmutableResult
+     */
+    public Response<T> markImmutable(Object version) {
+        this.immutable = true;
+        this.version = version;
+        return this;
+    }
+
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    /**
+     * the version given to {@link #markImmutable(java.lang.Object)}
+     *
+     * @return the version or null
+     */
+    public Object getVersion() {
+        return version;
+    }
+
 
 
 }
@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate a method that is also annotated with {@link PostMapping} and
+ * accepts an {@link UploadedFile} as its only parameter to additionally
+ * accept resumable uploads (following the tus protocol):
+ * <ul>
+ * <li>POST on the path with the header Upload-Length (and optionally
+ * Upload-Metadata with filename and filetype) creates an upload and answers
+ * with 201 and its url (&lt;path&gt;/&lt;id&gt;) in the Location header</li>
+ * <li>HEAD on the url of the upload returns the number of bytes received so
+ * far in the header Upload-Offset</li>
+ * <li>PATCH (or POST with X-HTTP-Method-Override: PATCH) on the url of the
+ * upload with the header Upload-Offset and the content type
+ * application/offset+octet-stream appends a chunk</li>
+ * </ul>
+ * Uploads are spooled to disk and survive restarts of the server. When
+ * the last chunk has been received the method is called with the complete
+ * file and its result is returned to the request of the last chunk. The file
+ * is deleted after the method returned. Plain multipart posts to the path
+ * are still accepted.
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ResumableUpload {
+
+    /**
+     * the directory the uploads are spooled to. Defaults to a directory
+     * for the method within the temporary directory.
+     *
+     * @return
+     */
+    String spoolDirectory() default "";
+
+    /**
+     * the hours after which incomplete uploads are deleted
+     *
+     * @return
+     */
+    int expireHours() default 24;
+
+}
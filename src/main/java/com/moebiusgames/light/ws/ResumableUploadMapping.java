@@ -0,0 +1,81 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.reflect.Method;
+import java.util.regex.Matcher;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Maps HEAD and PATCH requests on &lt;path&gt;/&lt;id&gt; to the upload
+ * with the given id of a {@link ResumableUpload}. As not every client is
+ * able to send PATCH requests a POST with the header
+ * X-HTTP-Method-Override: PATCH is accepted as well.
+ *
+ * @author Florian Frankenberger
+ */
+class ResumableUploadMapping extends WebServiceMapping {
+
+    private static final Method HANDLE_METHOD;
+
+    static {
+        try {
+            HANDLE_METHOD = UploadStore.class.getMethod("handle", Object.class, String.class, HttpServletRequest.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("UploadStore has no handle method", e);
+        }
+    }
+
+    private final UploadStore uploadStore;
+
+    public ResumableUploadMapping(String pathPrefix, String uploadPath, UploadStore uploadStore) {
+        super(HttpMethod.PATCH, pathPrefix, uploadPath + "/{id}", HANDLE_METHOD);
+        this.uploadStore = uploadStore;
+    }
+
+    @Override
+    public Matcher match(String target, HttpServletRequest request) {
+        final String method = request.getMethod();
+        if (HttpMethod.PATCH.matches(method) || HttpMethod.HEAD.matches(method)
+                || (HttpMethod.POST.matches(method)
+                && HttpMethod.PATCH.name().equalsIgnoreCase(request.getHeader("X-HTTP-Method-Override")))) {
+            final Matcher matcher = getPattern().matcher(target);
+            if (matcher.matches()) {
+                return matcher;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void addParameters(HttpServletRequest request, Object[] parameters) {
+        //the id is a path parameter and the request is added automatically
+    }
+
+    @Override
+    protected Object invoke(Object service, Object[] parameters) throws Exception {
+        return uploadStore.handle(service, (String) parameters[1], (HttpServletRequest) parameters[2]);
+    }
+
+}
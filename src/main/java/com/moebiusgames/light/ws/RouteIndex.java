@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * An immutable index of the mappings of one or more web services. Paths
+ * without parameters are found with a single hash lookup, all other paths
+ * are found by walking a tree of their path segments (literal segments
+ * take precedence over segments with a parameter). Only the mappings at
+ * the end of the walk are matched against their url pattern.
+ *
+ * @author Florian Frankenberger
+ */
+class RouteIndex {
+
+    static final RouteIndex EMPTY = new RouteIndex(Collections.emptyList());
+
+    /**
+     * a mapping together with the handler executing it
+     */
+    static final class Route {
+
+        private final WebServiceHandler<?> handler;
+        private final WebServiceMapping mapping;
+
+        Route(WebServiceHandler<?> handler, WebServiceMapping mapping) {
+            this.handler = handler;
+            this.mapping = mapping;
+        }
+
+        public WebServiceHandler<?> getHandler() {
+            return handler;
+        }
+
+        public WebServiceMapping getMapping() {
+            return mapping;
+        }
+
+    }
+
+    /**
+     * the route found for a request together with the matcher of its path
+     */
+    static final class Match {
+
+        private final Route route;
+        private final Matcher matcher;
+
+        private Match(Route route, Matcher matcher) {
+            this.route = route;
+            this.matcher = matcher;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public Matcher getMatcher() {
+            return matcher;
+        }
+
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> literals = new HashMap<>();
+        private Node parameter = null;
+        private final List<Route> routes = new ArrayList<>(1);
+
+    }
+
+    private final List<Route> routes;
+    private final Map<String, List<Route>> staticRoutes = new HashMap<>();
+    private final Node root = new Node();
+
+    /**
+     * creates an index of the given routes
+     *
+     * @param routes
+     * @throws IllegalStateException if two routes of different handlers
+     *                               have the same http method and the same
+     *                               path (ignoring the names of parameters) -
+     *                               within one handler the first route is used
+     */
+    RouteIndex(List<Route> routes) {
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        final Map<String, Route> routesByKey = new HashMap<>();
+        for (Route route : routes) {
+            final WebServiceMapping mapping = route.getMapping();
+            final String key = mapping.getHttpMethod() + " " + normalize(mapping.getPath());
+            final Route conflicting = routesByKey.putIfAbsent(key, route);
+            if (conflicting != null && conflicting.getHandler() != route.getHandler()) {
+                throw new IllegalStateException("Route " + key + " of " + mapping.getMethod()
+                        + " conflicts with " + conflicting.getMapping().getMethod());
+            }
+            add(route);
+        }
+    }
+
+    private void add(Route route) {
+        final String path = route.getMapping().getPath();
+        if (path.indexOf('{') < 0) {
+            staticRoutes.computeIfAbsent(path, key -> new ArrayList<>(1)).add(route);
+            return;
+        }
+        Node node = root;
+        for (String segment : path.split("/", -1)) {
+            if (segment.indexOf('{') >= 0) {
+                if (node.parameter == null) {
+                    node.parameter = new Node();
+                }
+                node = node.parameter;
+            } else {
+                node = node.literals.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        node.routes.add(route);
+    }
+
+    /**
+     * all routes of this index in the order they were given
+     *
+     * @return
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+    /**
+     * finds the route for the given request
+     *
+     * @param target
+     * @param request
+     * @return the match or null if no route matches
+     */
+    public Match find(String target, HttpServletRequest request) {
+        final List<Route> candidates = staticRoutes.get(target);
+        if (candidates != null) {
+            final Match match = match(candidates, target, request);
+            if (match != null) {
+                return match;
+            }
+        }
+        if (root.literals.isEmpty() && root.parameter == null) {
+            return null;
+        }
+        return find(root, target.split("/", -1), 0, target, request);
+    }
+
+    private static Match find(Node node, String[] segments, int index, String target,
+            HttpServletRequest request) {
+        if (index == segments.length) {
+            return match(node.routes, target, request);
+        }
+        final Node literal = node.literals.get(segments[index]);
+        if (literal != null) {
+            final Match match = find(literal, segments, index + 1, target, request);
+            if (match != null) {
+                return match;
+            }
+        }
+        if (node.parameter != null && !segments[index].isEmpty()) {
+            return find(node.parameter, segments, index + 1, target, request);
+        }
+        return null;
+    }
+
+    private static Match match(List<Route> candidates, String target, HttpServletRequest request) {
+        for (Route route : candidates) {
+            final Matcher matcher = route.getMapping().match(target, request);
+            if (matcher != null) {
+                return new Match(route, matcher);
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String path) {
+        return path.replaceAll("\\{.*?\\}", "{}");
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A request body that has been read completely - kept in memory as long as
+ * it is small and in a temporary file otherwise
+ *
+ * @author Florian Frankenberger
+ */
+final class SpooledBody {
+
+    private final int memoryThreshold;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private File file = null;
+    private OutputStream fileOut = null;
+    private long length = 0;
+
+    public SpooledBody(int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    public void write(byte[] bytes, int offset, int count) throws IOException {
+        if (file == null && memory.size() + count > memoryThreshold) {
+            file = File.createTempFile("body", ".dat");
+            file.deleteOnExit();
+            fileOut = new FileOutputStream(file);
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        if (file == null) {
+            memory.write(bytes, offset, count);
+        } else {
+            fileOut.write(bytes, offset, count);
+        }
+        length += count;
+    }
+
+    /**
+     * called after the last byte has been written
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (fileOut != null) {
+            fileOut.close();
+            fileOut = null;
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public InputStream openInputStream() throws IOException {
+        return file == null
+                ? new ByteArrayInputStream(memory.toByteArray())
+                : new FileInputStream(file);
+    }
+
+    /**
+     * removes the temporary file (if any)
+     */
+    public void delete() {
+        try {
+            finish();
+        } catch (IOException e) {
+            //we are only cleaning up
+        }
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+}
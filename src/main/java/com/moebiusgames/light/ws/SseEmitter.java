@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * Sends server-sent events to one subscriber of a {@link SseMapping}.
+ * Sending never blocks: events are serialized right away and queued, the
+ * queue is written whenever the connection is ready to take more data
+ * (using the non blocking io of servlet 3.1). So no thread is bound to
+ * a subscriber, neither while it is idle nor while it is slow. If too many
+ * events pile up for a subscriber it is disconnected.
+ *
+ * @author Florian Frankenberger
+ */
+public class SseEmitter {
+
+    private static final Logger LOGGER = Logger.getLogger(SseEmitter.class.getCanonicalName());
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final int maxQueuedEvents;
+
+    private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+
+    //guarded by this
+    private AsyncContext asyncContext = null;
+    private ServletOutputStream out = null;
+    private boolean flushNeeded = false;
+    private boolean completing = false;
+    private volatile boolean closed = false;
+    private volatile long lastWrite = System.nanoTime();
+
+    SseEmitter(ObjectMapper objectMapper, int maxQueuedEvents) {
+        this.objectMapper = objectMapper;
+        this.maxQueuedEvents = maxQueuedEvents;
+    }
+
+    /**
+     * sends an event without a name. Strings are sent as they are, all other
+     * objects are serialized as JSON.
+     *
+     * @param data
+     * @return false if the subscriber is gone
+     */
+    public boolean send(Object data) {
+        return send(null, null, data);
+    }
+
+    /**
+     * sends a named event
+     *
+     * @param eventName
+     * @param data
+     * @return false if the subscriber is gone
+     */
+    public boolean send(String eventName, Object data) {
+        return send(eventName, null, data);
+    }
+
+    /**
+     * sends a named event with an id (a reconnecting client sends the last
+     * id it got in the header Last-Event-ID)
+     *
+     * @param eventName the name of the event or null
+     * @param id the id of the event or null
+     * @param data
+     * @return false if the subscriber is gone
+     */
+    public boolean send(String eventName, String id, Object data) {
+        if (closed) {
+            return false;
+        }
+        final String text;
+        try {
+            text = data instanceof String ? (String) data : objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not serialize event " + data, e);
+        }
+        final StringBuilder event = new StringBuilder(text.length() + 32);
+        if (eventName != null) {
+            event.append("event: ").append(eventName).append('\n');
+        }
+        if (id != null) {
+            event.append("id: ").append(id).append('\n');
+        }
+        for (String line : text.split("\r\n|\r|\n", -1)) {
+            event.append("data: ").append(line).append('\n');
+        }
+        event.append('\n');
+        return enqueue(event.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * closes the stream after all queued events have been sent
+     */
+    public void complete() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            completing = true;
+        }
+        drain();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * registers a listener that is called once when the stream is closed,
+     * either by {@link #complete()} or because the subscriber is gone
+     *
+     * @param listener
+     */
+    public void onClose(Runnable listener) {
+        closeListeners.add(listener);
+        if (closed && closeListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    private boolean enqueue(byte[] data) {
+        if (queued.incrementAndGet() > maxQueuedEvents) {
+            LOGGER.log(Level.INFO, "Disconnecting slow subscriber with {0} queued events", maxQueuedEvents);
+            close();
+            return false;
+        }
+        queue.add(data);
+        drain();
+        return !closed;
+    }
+
+    /**
+     * starts streaming to the client, called when the method of the
+     * mapping returned
+     */
+    synchronized void open(AsyncContext asyncContext) throws IOException {
+        if (queue.isEmpty()) {
+            //makes sure the headers are sent right away
+            queued.incrementAndGet();
+            queue.add(HEARTBEAT);
+        }
+        this.asyncContext = asyncContext;
+        this.out = asyncContext.getResponse().getOutputStream();
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() throws IOException {
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                LOGGER.log(Level.FINE, "Subscriber is gone", t);
+                close();
+            }
+        });
+    }
+
+    /**
+     * sends a comment if nothing has been sent for the given time
+     */
+    void heartbeat(long idleNanos) {
+        if (System.nanoTime() - lastWrite >= idleNanos && queue.isEmpty()) {
+            enqueue(HEARTBEAT);
+        }
+    }
+
+    private synchronized void drain() {
+        //the write listener is set when the method returned, before that
+        //all events are just queued
+        if (out == null || closed) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                final byte[] data = queue.poll();
+                if (data != null) {
+                    queued.decrementAndGet();
+                    out.write(data);
+                    flushNeeded = true;
+                    lastWrite = System.nanoTime();
+                } else if (flushNeeded) {
+                    flushNeeded = false;
+                    out.flush();
+                } else {
+                    if (completing) {
+                        close();
+                    }
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, "Could not write to subscriber", e);
+            close();
+        }
+    }
+
+    /**
+     * closes the stream without sending queued events
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            if (asyncContext != null) {
+                try {
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    LOGGER.log(Level.FINE, "Stream already completed", e);
+                }
+            }
+        }
+        for (Runnable listener : closeListeners) {
+            if (!closeListeners.remove(listener)) {
+                continue;
+            }
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Close listener failed", e);
+            }
+        }
+    }
+
+}
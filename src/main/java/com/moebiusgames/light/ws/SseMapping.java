@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotate any public method in a class annotated with
+ * {@link WebService} to make this method available as a stream of
+ * server-sent events that can be subscribed to via GET. The method
+ * has to accept a {@link SseEmitter} and should only keep it (e.g. in
+ * a list of subscribers) and return, events can then be sent by any
+ * thread until the emitter is closed.
+ *
+ * @author Florian Frankenberger
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SseMapping {
+
+    String value();
+
+    /**
+     * the number of events that may wait for a slow subscriber before
+     * the subscriber is disconnected
+     *
+     * @return
+     */
+    int maxQueuedEvents() default 1024;
+
+    /**
+     * the interval in seconds in which a comment is sent to idle subscribers
+     * to keep proxies from closing the connection and to notice subscribers
+     * that are gone (0 to disable)
+     *
+     * @return
+     */
+    int heartbeatSeconds() default 15;
+
+}
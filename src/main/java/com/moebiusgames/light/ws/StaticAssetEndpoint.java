@@ -0,0 +1,457 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.HttpOutput;
+
+/**
+ * Serves the files of {@link StaticAssets} via GET and HEAD. Assets are
+ * looked up on the classpath or in a directory, recently requested ones
+ * (together with their .gz sibling) are kept in memory and written to the
+ * client without copying.
+ *
+ * @author Florian Frankenberger
+ */
+class StaticAssetEndpoint {
+
+    private static final Logger LOGGER = Logger.getLogger(StaticAssetEndpoint.class.getCanonicalName());
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private final String path;
+    private final String classpathRoot;
+    private final ClassLoader classLoader;
+    private final Path directory;
+    private final String index;
+    private final String cacheControl;
+    private final long cacheSize;
+    private final long maxCachedAssetSize;
+
+    private final Map<String, Asset> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    public StaticAssetEndpoint(String path, StaticAssets assets, ClassLoader classLoader) {
+        final boolean fromClasspath = !assets.classpath().trim().isEmpty();
+        final boolean fromDirectory = !assets.directory().trim().isEmpty();
+        if (fromClasspath == fromDirectory) {
+            throw new IllegalStateException("Static assets at " + path
+                    + " need either a classpath or a directory");
+        }
+        if (assets.cacheSize() < 0 || assets.maxAgeSeconds() < 0) {
+            throw new IllegalStateException("Static assets at " + path
+                    + " have a negative cache size or max age");
+        }
+        this.path = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        this.classpathRoot = fromClasspath ? trimSlashes(assets.classpath().trim()) : null;
+        this.classLoader = classLoader;
+        this.directory = fromDirectory ? Paths.get(assets.directory()).toAbsolutePath().normalize() : null;
+        this.index = assets.index();
+        this.cacheControl = "public, max-age=" + assets.maxAgeSeconds()
+                + (assets.immutable() ? ", immutable" : "");
+        this.cacheSize = assets.cacheSize();
+        this.maxCachedAssetSize = assets.cacheSize() / 8;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * where the assets are read from
+     *
+     * @return
+     */
+    public String getSource() {
+        return directory != null ? directory.toString() : "classpath:" + classpathRoot;
+    }
+
+    public boolean matches(String target, HttpServletRequest request) {
+        return (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))
+                && target.startsWith(path)
+                && (target.length() == path.length() || target.charAt(path.length()) == '/');
+    }
+
+    public void handle(String target, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (target.length() == path.length()) {
+            //relative links of the index only work below the path
+            final String query = request.getQueryString();
+            response.sendRedirect(request.getRequestURI() + "/" + (query == null ? "" : "?" + query));
+            return;
+        }
+        String name = target.substring(path.length() + 1);
+        if (name.isEmpty() || name.endsWith("/")) {
+            name += index;
+        }
+        if (!isValidName(name)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        final boolean gzip = EncodedResultCache.acceptsGzip(request);
+        Asset asset = getCached(name);
+        if (asset == null) {
+            final Source source = find(name);
+            if (source == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            final Source gzipSource = find(name + GZIP_SUFFIX);
+            if (source.size < 0 || source.size > maxCachedAssetSize) {
+                send(request, response, name, source, gzipSource, gzip);
+                return;
+            }
+            asset = load(name, source, gzipSource);
+        }
+        send(request, response, asset, gzip);
+    }
+
+    /**
+     * returns the cached asset if it is still up to date
+     */
+    private Asset getCached(String name) {
+        final Asset asset;
+        synchronized (cache) {
+            asset = cache.get(name);
+        }
+        if (asset != null && directory != null && !isUpToDate(asset)) {
+            remove(name);
+            return null;
+        }
+        return asset;
+    }
+
+    private static boolean isUpToDate(Asset asset) {
+        try {
+            if (Files.getLastModifiedTime(asset.file).toMillis() != asset.lastModified) {
+                return false;
+            }
+            //the .gz sibling may have been changed, deleted or added on its own
+            final Path gzipFile = asset.file.resolveSibling(asset.file.getFileName() + GZIP_SUFFIX);
+            if (asset.gzipped == null) {
+                return !Files.exists(gzipFile);
+            }
+            return Files.getLastModifiedTime(gzipFile).toMillis() == asset.gzipLastModified;
+        } catch (IOException e) {
+            //deleted (or not readable anymore)
+            return false;
+        }
+    }
+
+    private Asset load(String name, Source source, Source gzipSource) throws IOException {
+        final ByteBuffer content = read(source.url.openStream(), source.size);
+        final ByteBuffer gzipped = gzipSource == null ? null : read(gzipSource.url.openStream(), gzipSource.size);
+        final Asset asset = new Asset(getContentType(name), source.lastModified,
+                content, gzipped, gzipSource == null ? 0 : gzipSource.lastModified,
+                directory == null ? null : directory.resolve(name));
+        if (asset.getWeight() <= maxCachedAssetSize) {
+            synchronized (cache) {
+                final Asset previous = cache.put(name, asset);
+                if (previous != null) {
+                    cachedBytes -= previous.getWeight();
+                }
+                cachedBytes += asset.getWeight();
+                final Iterator<Asset> iterator = cache.values().iterator();
+                while (cachedBytes > cacheSize && iterator.hasNext()) {
+                    cachedBytes -= iterator.next().getWeight();
+                    iterator.remove();
+                }
+            }
+        }
+        return asset;
+    }
+
+    private void remove(String name) {
+        synchronized (cache) {
+            final Asset removed = cache.remove(name);
+            if (removed != null) {
+                cachedBytes -= removed.getWeight();
+            }
+        }
+    }
+
+    private void send(HttpServletRequest request, HttpServletResponse response,
+            Asset asset, boolean acceptsGzip) throws IOException {
+        final boolean gzip = acceptsGzip && asset.gzipped != null;
+        final String etag = getETag(asset.content.capacity(), asset.lastModified, gzip);
+        if (!writeHeaders(request, response, asset.contentType, etag, asset.lastModified,
+                asset.gzipped != null, gzip)) {
+            return;
+        }
+        final ByteBuffer content = (gzip ? asset.gzipped : asset.content).duplicate();
+        response.setContentLength(content.remaining());
+        final OutputStream out = response.getOutputStream();
+        if (out instanceof HttpOutput) {
+            ((HttpOutput) out).sendContent(content);
+        } else {
+            Channels.newChannel(out).write(content);
+        }
+    }
+
+    /**
+     * streams an asset that is too large to be kept in memory
+     */
+    private void send(HttpServletRequest request, HttpServletResponse response, String name,
+            Source source, Source gzipSource, boolean acceptsGzip) throws IOException {
+        final boolean gzip = acceptsGzip && gzipSource != null;
+        final Source content = gzip ? gzipSource : source;
+        final String etag = getETag(source.size, source.lastModified, gzip);
+        if (!writeHeaders(request, response, getContentType(name), etag, source.lastModified,
+                gzipSource != null, gzip)) {
+            return;
+        }
+        if (content.size >= 0) {
+            response.setContentLengthLong(content.size);
+        }
+        try (InputStream in = content.url.openStream()) {
+            BufferPools.copy(in, response.getOutputStream());
+        }
+    }
+
+    /**
+     * writes the headers of an asset
+     *
+     * @return false if the client already has the asset (answered with 304)
+     */
+    private boolean writeHeaders(HttpServletRequest request, HttpServletResponse response,
+            String contentType, String etag, long lastModified, boolean hasGzip, boolean gzip) {
+        response.setHeader("ETag", etag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        response.setHeader("Cache-Control", cacheControl);
+        if (hasGzip) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        response.setContentType(contentType);
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        return true;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            //If-Modified-Since is ignored if If-None-Match is present
+            return false;
+        }
+        if (lastModified > 0) {
+            try {
+                final long since = request.getDateHeader("If-Modified-Since");
+                //http dates have a resolution of seconds
+                return since >= 0 && lastModified / 1000 <= since / 1000;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String getETag(long size, long lastModified, boolean gzip) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified)
+                + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    /**
+     * returns the source of the asset with the given name - its size and
+     * date are looked up without opening it
+     *
+     * @return the source or null if there is no such file
+     */
+    private Source find(String name) throws IOException {
+        if (directory != null) {
+            final Path file = directory.resolve(name).normalize();
+            return file.startsWith(directory) && Files.isRegularFile(file)
+                    ? Source.of(file)
+                    : null;
+        }
+        final URL url = classLoader.getResource(classpathRoot.isEmpty() ? name : classpathRoot + "/" + name);
+        if (url == null) {
+            return null;
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                final Path file = Paths.get(url.toURI());
+                return Files.isRegularFile(file) ? Source.of(file) : null;
+            } catch (URISyntaxException e) {
+                LOGGER.log(Level.WARNING, "Could not resolve asset " + url, e);
+                return null;
+            }
+        }
+        final URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            //the entry is looked up in the (shared) jar file, no stream is opened
+            final JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            return entry.isDirectory() ? null : new Source(url, entry.getSize(), entry.getTime());
+        }
+        //size and date of other urls are unknown, so they are always streamed
+        return new Source(url, -1, 0);
+    }
+
+    private static ByteBuffer read(InputStream in, long size) throws IOException {
+        try (InputStream input = in) {
+            final ContentOutputStream out = new ContentOutputStream((int) Math.max(32, size));
+            BufferPools.copy(input, out);
+            return out.toByteBuffer();
+        }
+    }
+
+    private static String getContentType(String name) {
+        final String mimeType = MimeTypes.getDefaultMimeByExtension(name);
+        if (mimeType == null) {
+            return "application/octet-stream";
+        }
+        if (!mimeType.contains("charset") && (mimeType.startsWith("text/")
+                || mimeType.equals("application/javascript") || mimeType.equals("application/json"))) {
+            return mimeType + "; charset=utf-8";
+        }
+        return mimeType;
+    }
+
+    /**
+     * only plain relative names are served
+     */
+    private static boolean isValidName(String name) {
+        if (name.startsWith("/") || name.indexOf('\\') >= 0 || name.indexOf('\0') >= 0) {
+            return false;
+        }
+        for (String segment : name.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trimSlashes(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == '/') {
+            ++start;
+        }
+        while (end > start && value.charAt(end - 1) == '/') {
+            --end;
+        }
+        return value.substring(start, end);
+    }
+
+    /**
+     * where an asset is read from
+     */
+    private static final class Source {
+
+        private final URL url;
+        private final long size;
+        private final long lastModified;
+
+        Source(URL url, long size, long lastModified) {
+            this.url = url;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static Source of(Path file) throws IOException {
+            return new Source(file.toUri().toURL(), Files.size(file),
+                    Files.getLastModifiedTime(file).toMillis());
+        }
+
+    }
+
+    /**
+     * hands out its buffer instead of a copy of it
+     */
+    private static final class ContentOutputStream extends ByteArrayOutputStream {
+
+        ContentOutputStream(int size) {
+            super(size);
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count).slice().asReadOnlyBuffer();
+        }
+
+    }
+
+    /**
+     * an asset kept in memory
+     */
+    private static final class Asset {
+
+        private final String contentType;
+        private final long lastModified;
+        private final ByteBuffer content;
+        private final ByteBuffer gzipped;
+        private final long gzipLastModified;
+        private final Path file;
+
+        Asset(String contentType, long lastModified, ByteBuffer content,
+                ByteBuffer gzipped, long gzipLastModified, Path file) {
+            this.contentType = contentType;
+            this.lastModified = lastModified;
+            this.content = content;
+            this.gzipped = gzipped;
+            this.gzipLastModified = gzipLastModified;
+            this.file = file;
+        }
+
+        long getWeight() {
+            return content.capacity() + (gzipped == null ? 0 : gzipped.capacity());
+        }
+
+    }
+
+}
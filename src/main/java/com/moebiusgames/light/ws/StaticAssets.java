@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Serves static files (e.g. a web ui) below the given path of a class
+ * annotated with {@link WebService}, either from the classpath or from a
+ * directory. Mappings of the service take precedence. Recently requested
+ * assets are kept in memory, a precompressed sibling (&lt;name&gt;.gz) is
+ * sent to clients accepting gzip and all assets are sent with ETag,
+ * Last-Modified and Cache-Control headers.
+ *
+ * @author Florian Frankenberger
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StaticAssets {
+
+    /**
+     * the path the assets are served at (relative to the path of the
+     * web service)
+     *
+     * @return
+     */
+    String value();
+
+    /**
+     * the classpath location of the assets (e.g. "webapp")
+     *
+     * @return
+     */
+    String classpath() default "";
+
+    /**
+     * the directory of the assets (if not served from the classpath)
+     *
+     * @return
+     */
+    String directory() default "";
+
+    /**
+     * the file sent for requests of a directory
+     *
+     * @return
+     */
+    String index() default "index.html";
+
+    /**
+     * the time in seconds clients may use an asset without asking again
+     *
+     * @return
+     */
+    long maxAgeSeconds() default 3600;
+
+    /**
+     * true if the assets never change under the same name (e.g. because
+     * their names contain a hash of their content), which lets clients use
+     * them without ever asking again
+     *
+     * @return
+     */
+    boolean immutable() default false;
+
+    /**
+     * the number of bytes of assets kept in memory (the least recently
+     * used ones are dropped, assets larger than an eighth of it are never
+     * kept)
+     *
+     * @return
+     */
+    long cacheSize() default 16 * 1024 * 1024;
+
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Spools uploaded files to disk and computes their size and digests while
+ * they are written, so nothing has to be read twice
+ *
+ * @author Florian Frankenberger
+ */
+final class UploadSpooler {
+
+    private final String[] algorithms;
+    private final long maxSize;
+
+    /**
+     * @param algorithms the digests to compute
+     * @param maxSize the maximum size of a posted body or -1 if unlimited
+     * @throws IllegalStateException if an algorithm is unknown
+     */
+    public UploadSpooler(String[] algorithms, long maxSize) {
+        this.algorithms = algorithms.clone();
+        this.maxSize = maxSize;
+        //fail early on typos
+        createDigests();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * creates a fresh instance of every configured digest
+     *
+     * @return
+     */
+    MessageDigest[] createDigests() {
+        final MessageDigest[] digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; ++i) {
+            try {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Unknown digest algorithm " + algorithms[i], e);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * collects the results of the given digests
+     *
+     * @param digests
+     * @return the digests by algorithm
+     */
+    Map<String, byte[]> finish(MessageDigest[] digests) {
+        if (digests.length == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<String, byte[]> result = new LinkedHashMap<>();
+        for (int i = 0; i < digests.length; ++i) {
+            result.put(algorithms[i], digests[i].digest());
+        }
+        return result;
+    }
+
+    /**
+     * computes the digests of a file that has been written before
+     *
+     * @param file
+     * @return the digests by algorithm
+     * @throws IOException
+     */
+    Map<String, byte[]> digest(Path file) throws IOException {
+        final MessageDigest[] digests = createDigests();
+        if (digests.length > 0) {
+            final ByteBuffer buffer = BufferPools.acquire(BufferPools.COPY_BUFFER_SIZE);
+            try (InputStream in = Files.newInputStream(file)) {
+                final byte[] bytes = buffer.array();
+                final int offset = buffer.arrayOffset();
+                int read;
+                while ((read = in.read(bytes, offset, BufferPools.COPY_BUFFER_SIZE)) >= 0) {
+                    for (MessageDigest digest : digests) {
+                        digest.update(bytes, offset, read);
+                    }
+                }
+            } finally {
+                BufferPools.release(buffer);
+            }
+        }
+        return finish(digests);
+    }
+
+    /**
+     * writes the stream into a temporary file
+     *
+     * @param in
+     * @param fileName
+     * @param contentType
+     * @param fieldName
+     * @return the uploaded file
+     * @throws IOException
+     */
+    public UploadedFile spool(InputStream in, String fileName, String contentType,
+            String fieldName) throws IOException {
+        final File tmpFile = File.createTempFile("part", ".dat");
+        tmpFile.deleteOnExit();
+
+        final MessageDigest[] digests = createDigests();
+        final ByteBuffer buffer = BufferPools.acquire(BufferPools.COPY_BUFFER_SIZE);
+        long size = 0;
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            final byte[] bytes = buffer.array();
+            final int offset = buffer.arrayOffset();
+            int read;
+            while ((read = in.read(bytes, offset, BufferPools.COPY_BUFFER_SIZE)) >= 0) {
+                out.write(bytes, offset, read);
+                for (MessageDigest digest : digests) {
+                    digest.update(bytes, offset, read);
+                }
+                size += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            //a part that could not be read completely is of no use
+            tmpFile.delete();
+            throw e;
+        } finally {
+            BufferPools.release(buffer);
+        }
+        return new UploadedFile(tmpFile, fileName, contentType, fieldName, size, finish(digests));
+    }
+
+    /**
+     * wraps the body of a request so that reading more than the maximum
+     * size fails with a {@link PayloadTooLargeException}
+     *
+     * @param in
+     * @return
+     */
+    public InputStream limit(InputStream in) {
+        if (maxSize < 0) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+
+            private long remaining = maxSize;
+
+            @Override
+            public int read() throws IOException {
+                final int read = super.read();
+                if (read >= 0) {
+                    count(1);
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                final int read = super.read(bytes, offset, length);
+                if (read > 0) {
+                    count(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                final long skipped = super.skip(n);
+                count(skipped);
+                return skipped;
+            }
+
+            private void count(long bytes) {
+                remaining -= bytes;
+                if (remaining < 0) {
+                    throw new PayloadTooLargeException("Posted body exceeds " + maxSize + " bytes");
+                }
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,387 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Spools the chunks of {@link ResumableUpload}s to disk. Every upload
+ * consists of an info file (length, file name and content type) and a data
+ * file the chunks are written to. The offset of an upload is the size of its
+ * data file, so uploads can be continued after a restart of the server.
+ *
+ * @author Florian Frankenberger
+ */
+class UploadStore {
+
+    private static final Logger LOGGER = Logger.getLogger(UploadStore.class.getCanonicalName());
+
+    public static final String TUS_VERSION = "1.0.0";
+    public static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{32}");
+
+    private final Path directory;
+    private final long expireMillis;
+    private final WebServicePostMapping postMapping;
+
+    //uploads currently known to this instance - others are loaded from disk
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    public UploadStore(Path directory, int expireHours, WebServicePostMapping postMapping) {
+        this.directory = directory;
+        this.expireMillis = TimeUnit.HOURS.toMillis(expireHours);
+        this.postMapping = postMapping;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't create spool directory " + directory, e);
+        }
+    }
+
+    /**
+     * creates a new upload as requested with the headers Upload-Length and
+     * Upload-Metadata
+     *
+     * @param request
+     * @return the id of the upload
+     * @throws IOException
+     */
+    public String create(HttpServletRequest request) throws IOException {
+        final long length;
+        try {
+            length = Long.parseLong(request.getHeader("Upload-Length").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Upload-Length is not a number", e);
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Upload-Length must not be negative");
+        }
+        final long maxSize = postMapping.getSpooler().getMaxSize();
+        if (maxSize >= 0 && length > maxSize) {
+            throw new PayloadTooLargeException("Upload of " + length + " bytes exceeds " + maxSize + " bytes");
+        }
+        removeExpired();
+
+        final Map<String, String> metadata = parseMetadata(request.getHeader("Upload-Metadata"));
+        final String id = UUID.randomUUID().toString().replace("-", "");
+        final Upload upload = new Upload(id, length, metadata.get("filename"), metadata.get("filetype"));
+        //digests are computed while the chunks arrive
+        upload.digests = postMapping.getSpooler().createDigests();
+
+        final Properties info = new Properties();
+        info.setProperty("length", String.valueOf(length));
+        if (upload.fileName != null) {
+            info.setProperty("fileName", upload.fileName);
+        }
+        if (upload.contentType != null) {
+            info.setProperty("contentType", upload.contentType);
+        }
+        Files.createFile(upload.dataFile);
+        try (OutputStream out = Files.newOutputStream(upload.infoFile)) {
+            info.store(out, null);
+        }
+        uploads.put(id, upload);
+        return id;
+    }
+
+    /**
+     * used by the upload mapping: answers HEAD requests with the current
+     * offset and appends the chunks of PATCH requests. The method of the
+     * service is called with the file as soon as the upload is complete.
+     *
+     * @param service the service that receives the completed upload
+     * @param id the id of the upload
+     * @param request
+     * @return
+     * @throws Exception if the method of the service failed
+     */
+    public Response<Object> handle(Object service, @GetParameter("id") String id,
+            HttpServletRequest request) throws Exception {
+        final Upload upload = get(id);
+        if (upload == null) {
+            return tusResponse(new Response<>(null, HttpServletResponse.SC_NOT_FOUND));
+        }
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            final Response<Object> response = tusResponse(new Response<>(null, HttpServletResponse.SC_OK));
+            response.setHeader("Upload-Offset", String.valueOf(upload.getOffset()));
+            response.setHeader("Upload-Length", String.valueOf(upload.length));
+            response.setHeader("Cache-Control", "no-store");
+            return response;
+        }
+
+        final String contentType = request.getContentType();
+        if (contentType == null || !contentType.trim().toLowerCase().startsWith(OFFSET_CONTENT_TYPE)) {
+            return tusResponse(new Response<>(null, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE));
+        }
+        final long offset;
+        try {
+            offset = Long.parseLong(String.valueOf(request.getHeader("Upload-Offset")).trim());
+        } catch (NumberFormatException e) {
+            return tusResponse(new Response<>(null, HttpServletResponse.SC_BAD_REQUEST));
+        }
+
+        //a second client writing to the same upload at the same time is a conflict
+        if (!upload.lock.tryLock()) {
+            return tusResponse(new Response<>(null, HttpServletResponse.SC_CONFLICT));
+        }
+        final long newOffset;
+        try {
+            if (upload.completed || !Files.exists(upload.dataFile)) {
+                //completed or removed while we were waiting
+                return tusResponse(new Response<>(null, HttpServletResponse.SC_NOT_FOUND));
+            }
+            if (offset != upload.getOffset()) {
+                final Response<Object> response = tusResponse(new Response<>(null, HttpServletResponse.SC_CONFLICT));
+                response.setHeader("Upload-Offset", String.valueOf(upload.getOffset()));
+                return response;
+            }
+            newOffset = upload.write(offset, request.getInputStream());
+            if (newOffset < upload.length) {
+                final Response<Object> response = tusResponse(new Response<>(null, HttpServletResponse.SC_NO_CONTENT));
+                response.setHeader("Upload-Offset", String.valueOf(newOffset));
+                return response;
+            }
+            //the upload is complete, so nobody can continue it anymore (not
+            //even a retry of this request)
+            upload.completed = true;
+            uploads.remove(upload.id);
+            Files.deleteIfExists(upload.infoFile);
+        } finally {
+            upload.lock.unlock();
+        }
+        return complete(service, upload, newOffset);
+    }
+
+    private Response<Object> complete(Object service, Upload upload, long offset) throws Exception {
+        try {
+            final UploadSpooler spooler = postMapping.getSpooler();
+            final Map<String, byte[]> digests = upload.digests != null
+                    ? spooler.finish(upload.digests)
+                    : spooler.digest(upload.dataFile);
+            final Object result = postMapping.invokeUpload(service,
+                    new UploadedFile(upload.dataFile.toFile(), upload.fileName, upload.contentType,
+                            null, offset, digests));
+            final Response<Object> response;
+            if (result instanceof Response) {
+                @SuppressWarnings("unchecked")
+                final Response<Object> serviceResponse = (Response<Object>) result;
+                response = serviceResponse;
+            } else if (postMapping.getMethod().getReturnType() == void.class) {
+                response = new Response<>(null, HttpServletResponse.SC_NO_CONTENT);
+            } else {
+                response = new Response<>(result);
+            }
+            response.setHeader("Upload-Offset", String.valueOf(offset));
+            return tusResponse(response);
+        } finally {
+            Files.deleteIfExists(upload.dataFile);
+        }
+    }
+
+    private Upload get(String id) throws IOException {
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            return null;
+        }
+        Upload upload = uploads.get(id);
+        if (upload == null) {
+            upload = load(id);
+            if (upload != null) {
+                final Upload known = uploads.putIfAbsent(id, upload);
+                if (known != null) {
+                    upload = known;
+                }
+            }
+        }
+        return upload;
+    }
+
+    /**
+     * loads an upload that was created before the server was restarted
+     */
+    private Upload load(String id) throws IOException {
+        final Path infoFile = directory.resolve(id + ".info");
+        if (!Files.exists(infoFile) || !Files.exists(directory.resolve(id + ".data"))) {
+            return null;
+        }
+        final Properties info = new Properties();
+        try (Reader reader = Files.newBufferedReader(infoFile, StandardCharsets.ISO_8859_1)) {
+            info.load(reader);
+        }
+        try {
+            return new Upload(id, Long.parseLong(info.getProperty("length")),
+                    info.getProperty("fileName"), info.getProperty("contentType"));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Upload info {0} is broken", infoFile);
+            return null;
+        }
+    }
+
+    /**
+     * removes all uploads that have not been written to for longer than
+     * the expiry time
+     */
+    private void removeExpired() {
+        final long expireBefore = System.currentTimeMillis() - expireMillis;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.data")) {
+            for (Path dataFile : files) {
+                if (Files.getLastModifiedTime(dataFile).toMillis() < expireBefore) {
+                    final String name = dataFile.getFileName().toString();
+                    final String id = name.substring(0, name.length() - ".data".length());
+                    uploads.remove(id);
+                    Files.deleteIfExists(directory.resolve(id + ".info"));
+                    Files.deleteIfExists(dataFile);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not remove expired uploads from " + directory, e);
+        }
+    }
+
+    private static Response<Object> tusResponse(Response<Object> response) {
+        return response.setHeader("Tus-Resumable", TUS_VERSION);
+    }
+
+    /**
+     * parses the metadata header (comma separated keys with base64 encoded values)
+     */
+    static Map<String, String> parseMetadata(String header) {
+        final Map<String, String> metadata = new HashMap<>();
+        if (header == null) {
+            return metadata;
+        }
+        for (String pair : header.split(",")) {
+            final String[] keyValue = pair.trim().split(" ", 2);
+            if (keyValue[0].isEmpty()) {
+                continue;
+            }
+            try {
+                metadata.put(keyValue[0], keyValue.length > 1
+                        ? new String(Base64.getDecoder().decode(keyValue[1].trim()), StandardCharsets.UTF_8)
+                        : "");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Upload-Metadata value of " + keyValue[0]
+                        + " is not base64 encoded", e);
+            }
+        }
+        return metadata;
+    }
+
+    private class Upload {
+
+        private final String id;
+        private final long length;
+        private final String fileName;
+        private final String contentType;
+        private final Path infoFile;
+        private final Path dataFile;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        //the digests of all bytes so far or null if they are unknown (the
+        //upload was started before a restart or a write failed)
+        private MessageDigest[] digests = null;
+        //set (while locked) once the last chunk has been written
+        private boolean completed = false;
+
+        Upload(String id, long length, String fileName, String contentType) {
+            this.id = id;
+            this.length = length;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.infoFile = directory.resolve(id + ".info");
+            this.dataFile = directory.resolve(id + ".data");
+        }
+
+        long getOffset() throws IOException {
+            return Files.size(dataFile);
+        }
+
+        /**
+         * writes the chunk at the given position (never beyond the announced
+         * length)
+         *
+         * @return the new offset
+         */
+        long write(long offset, InputStream in) throws IOException {
+            final ByteBuffer buffer = BufferPools.acquire(BufferPools.COPY_BUFFER_SIZE);
+            final byte[] bytes = buffer.array();
+            final int arrayOffset = buffer.arrayOffset();
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+                try {
+                    int read;
+                    while (position < length
+                            && (read = in.read(bytes, arrayOffset,
+                                    (int) Math.min(BufferPools.COPY_BUFFER_SIZE, length - position))) > -1) {
+                        buffer.clear().limit(read);
+                        while (buffer.hasRemaining()) {
+                            position += channel.write(buffer, position);
+                        }
+                        if (digests != null) {
+                            for (MessageDigest digest : digests) {
+                                digest.update(bytes, arrayOffset, read);
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    //we can't tell which bytes made it into the digests
+                    digests = null;
+                    throw e;
+                } finally {
+                    //whatever made it to the disk counts - even if the connection broke
+                    channel.force(false);
+                }
+            } finally {
+                BufferPools.release(buffer);
+            }
+            return position;
+        }
+
+    }
+
+}
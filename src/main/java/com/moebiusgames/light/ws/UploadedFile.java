@@ -26,28 +26,143 @@ package com.moebiusgames.light.ws;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
 
 /**
- * Use this class as post parameter for a file upload
+ * Use this class as post parameter for a file upload. Uploaded files are
+ * usually spooled to a temporary file. Files received as Iterator or Stream
+ * are live instead: they are read directly from the request and can only be
+ * read once (and only until the next file is requested).
  */
 public class UploadedFile {
 
     private final File tmpFile;
     private final String fileName;
     private final String contentType;
+    private final String fieldName;
+    private final long size;
+    private final Map<String, byte[]> digests;
+
+    //only set for live files
+    private final CountingInputStream liveStream;
 
     public UploadedFile(File tmpFile, String fileName, String contentType) {
+        this(tmpFile, fileName, contentType, null);
+    }
+
+    public UploadedFile(File tmpFile, String fileName, String contentType, String fieldName) {
+        this(tmpFile, fileName, contentType, fieldName, -1, Collections.emptyMap());
+    }
+
+    /**
+     * @param tmpFile
+     * @param fileName
+     * @param contentType
+     * @param fieldName
+     * @param size the number of bytes written to the file or -1 if unknown
+     * @param digests the digests computed while the file was written by algorithm
+     */
+    public UploadedFile(File tmpFile, String fileName, String contentType, String fieldName,
+            long size, Map<String, byte[]> digests) {
         this.tmpFile = tmpFile;
         this.fileName = fileName;
         this.contentType = contentType;
+        this.fieldName = fieldName;
+        this.size = size;
+        this.digests = digests;
+        this.liveStream = null;
     }
 
+    /**
+     * creates a live file that is read from the given stream
+     */
+    UploadedFile(InputStream liveStream, String fileName, String contentType, String fieldName) {
+        this.tmpFile = null;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.fieldName = fieldName;
+        this.size = -1;
+        this.digests = Collections.emptyMap();
+        this.liveStream = new CountingInputStream(liveStream);
+    }
+
+    /**
+     * opens the content of the file. Live files return the stream they are
+     * read from, so they can only be read once.
+     *
+     * @return
+     * @throws IOException
+     */
     public InputStream openInputStream() throws IOException {
+        if (liveStream != null) {
+            return liveStream;
+        }
         return new FileInputStream(tmpFile);
     }
 
+    /**
+     * true if this file is read directly from the request instead of
+     * a temporary file
+     *
+     * @return
+     */
+    public boolean isLive() {
+        return liveStream != null;
+    }
+
+    /**
+     * writes the content of the file to the given channel. If the channel
+     * accepts fewer bytes than offered it is written to again until it took
+     * all of them - no more data is read before that. The channel must be
+     * in blocking mode, a non-blocking channel could accept nothing for
+     * any length of time.
+     *
+     * @param channel a blocking channel
+     * @return the number of bytes written
+     * @throws IOException
+     * @throws IllegalArgumentException if the channel is non-blocking
+     */
+    public long transferTo(WritableByteChannel channel) throws IOException {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("Can't transfer " + fileName + " to a non-blocking channel");
+        }
+        if (liveStream == null) {
+            try (FileChannel in = FileChannel.open(tmpFile.toPath(), StandardOpenOption.READ)) {
+                final long length = in.size();
+                long position = 0;
+                while (position < length) {
+                    position += in.transferTo(position, length - position, channel);
+                }
+                return position;
+            }
+        }
+        final ByteBuffer buffer = BufferPools.acquire(BufferPools.COPY_BUFFER_SIZE);
+        try {
+            final byte[] bytes = buffer.array();
+            long transferred = 0;
+            int read;
+            while ((read = liveStream.read(bytes, buffer.arrayOffset(), BufferPools.COPY_BUFFER_SIZE)) >= 0) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                transferred += read;
+            }
+            return transferred;
+        } finally {
+            BufferPools.release(buffer);
+        }
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -56,13 +171,22 @@ public class UploadedFile {
         return contentType;
     }
 
+    /**
+     * the name of the form field the file was uploaded with
+     *
+     * @return the name or null if the file was not part of a form
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
     /**
      * Returns the temporary file where the data
      * is currently stored. Note that the file
      * is marked for auto removal when the VM
      * quits.
      *
-     * @return
+     * @return the file or null if this file is live
      */
     public File getTemporaryFile() {
         return tmpFile;
@@ -71,10 +195,76 @@ public class UploadedFile {
     /**
      * returns the size of the uploaded file
      *
-     * @return
+     * @return the size (or the number of bytes read so far if this file is live)
      */
     public long getSize() {
-        return this.tmpFile.length();
+        if (liveStream != null) {
+            return liveStream.count;
+        }
+        return this.size >= 0 ? this.size : this.tmpFile.length();
+    }
+
+    /**
+     * returns the digest of the file that was computed while it was
+     * uploaded (see {@link UploadDigests})
+     *
+     * @param algorithm the algorithm like "SHA-256"
+     * @return the digest or null if it has not been computed
+     */
+    public byte[] getDigest(String algorithm) {
+        final byte[] digest = digests.get(algorithm);
+        return digest == null ? null : digest.clone();
+    }
+
+    /**
+     * returns the digest as lowercase hex string
+     *
+     * @param algorithm the algorithm like "SHA-256"
+     * @return the digest or null if it has not been computed
+     */
+    public String getDigestHex(String algorithm) {
+        final byte[] digest = digests.get(algorithm);
+        if (digest == null) {
+            return null;
+        }
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int read = super.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            final int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+            //the request is closed by the framework
+        }
+
     }
 
 }
@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates clients for web services. A client is described by an interface
+ * annotated just like the web service itself (with {@link WebService},
+ * {@link GetMapping}, {@link PostMapping}, {@link GetParameter} and
+ * {@link PostParameter}):
+ * <pre>
+ * &#64;WebService("/web")
+ * public interface GreetingClient {
+ *     &#64;GetMapping("/hello/{name}")
+ *     Greeting hello(&#64;GetParameter("name") String name);
+ *
+ *     &#64;GetMapping("/hello/{name}")
+ *     CompletableFuture&lt;Greeting&gt; helloAsync(&#64;GetParameter("name") String name);
+ * }
+ *
+ * GreetingClient client = new WebServiceClient(URI.create("http://localhost:8080"))
+ *         .createProxy(GreetingClient.class);
+ * </pre>
+ * Url templates, JSON readers and writers are prepared once when the proxy
+ * is created. Calls use keep-alive connections which are pooled by the JVM
+ * (the number of idle connections per server can be set with the system
+ * property http.maxConnections). Methods returning a CompletableFuture are
+ * executed asynchronously, so many calls can be in flight at the same time.
+ * A method returning a {@link Response} gets the status code and headers
+ * instead of a {@link WebServiceClientException} for error states.
+ * Parameters of the path must not be null. Default methods of the interface
+ * are called as they are, abstract methods without a mapping throw an
+ * UnsupportedOperationException.
+ * <p>
+ * Async calls are executed by at most {@link #DEFAULT_THREADS} threads
+ * (unless an executor is set); close the client to shut them down.
+ *
+ * @author Florian Frankenberger
+ */
+public class WebServiceClient implements Closeable {
+
+    /**
+     * the number of threads of the default executor
+     */
+    public static final int DEFAULT_THREADS = 32;
+
+    private final String baseUrl;
+
+    private ObjectMapper objectMapper = null;
+    private volatile ExecutorService executor = createDefaultExecutor();
+    private volatile boolean ownsExecutor = true;
+    private int connectTimeout = 10_000;
+    private int readTimeout = 60_000;
+
+    /**
+     * @param baseUri the uri of the server (without the path of the web service)
+     */
+    public WebServiceClient(URI baseUri) {
+        final String uri = baseUri.toString();
+        this.baseUrl = uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    /**
+     * sets the object mapper used by proxies created afterwards
+     *
+     * @param objectMapper the mapper or null to use the shared one (see
+     *                     {@link ObjectMappers})
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * sets the executor that executes calls of methods returning a
+     * CompletableFuture. The executor is not shut down when the client
+     * is closed.
+     *
+     * @param executor
+     */
+    public void setExecutor(ExecutorService executor) {
+        if (ownsExecutor) {
+            this.executor.shutdown();
+        }
+        this.executor = executor;
+        this.ownsExecutor = false;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeoutMillis) {
+        this.connectTimeout = connectTimeoutMillis;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeoutMillis) {
+        this.readTimeout = readTimeoutMillis;
+    }
+
+    /**
+     * creates a client for the web service described by the given interface
+     *
+     * @param <T>
+     * @param serviceInterface an interface annotated with {@link WebService}
+     * @return
+     * @throws IllegalArgumentException if the interface is no web service
+     * @throws IllegalStateException if a method of the interface can't be
+     *                               called by the client
+     */
+    public <T> T createProxy(Class<T> serviceInterface) {
+        if (!serviceInterface.isInterface() || !serviceInterface.isAnnotationPresent(WebService.class)) {
+            throw new IllegalArgumentException(serviceInterface.getCanonicalName()
+                    + " is not an interface annotated with WebService");
+        }
+        final String pathPrefix = serviceInterface.getAnnotation(WebService.class).value();
+        final ObjectMapper mapper = objectMapper != null ? objectMapper : ObjectMappers.getDefault();
+
+        final Map<Method, ClientMethod> clientMethods = new HashMap<>();
+        final Map<Method, MethodHandle> defaultMethods = new HashMap<>();
+        for (Method method : serviceInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                defaultMethods.put(method, getDefaultMethodHandle(method));
+            } else if (method.isAnnotationPresent(GetMapping.class)
+                    || method.isAnnotationPresent(PostMapping.class)) {
+                clientMethods.put(method, new ClientMethod(method, pathPrefix, mapper));
+            }
+        }
+
+        final Object proxy = Proxy.newProxyInstance(serviceInterface.getClassLoader(),
+                new Class<?>[] {serviceInterface}, (instance, method, arguments) -> {
+                    final ClientMethod clientMethod = clientMethods.get(method);
+                    if (clientMethod != null) {
+                        return clientMethod.invoke(this, baseUrl, arguments);
+                    }
+                    final MethodHandle defaultMethod = defaultMethods.get(method);
+                    if (defaultMethod != null) {
+                        return defaultMethod.bindTo(instance)
+                                .invokeWithArguments(arguments == null ? new Object[0] : arguments);
+                    }
+                    //methods of Object
+                    switch (method.getName()) {
+                        case "equals":
+                            return instance == arguments[0];
+                        case "hashCode":
+                            return System.identityHashCode(instance);
+                        case "toString":
+                            return serviceInterface.getSimpleName() + " client for " + baseUrl + pathPrefix;
+                        default:
+                            throw new UnsupportedOperationException(method.toString());
+                    }
+                });
+        return serviceInterface.cast(proxy);
+    }
+
+    /**
+     * a handle that calls the default method itself (and not the proxy)
+     */
+    private static MethodHandle getDefaultMethodHandle(Method method) {
+        final Class<?> declaringClass = method.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup;
+            try {
+                //java 9 and later
+                final Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+                        Class.class, MethodHandles.Lookup.class);
+                lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, declaringClass, MethodHandles.lookup());
+            } catch (NoSuchMethodException e) {
+                //java 8
+                final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
+                        .getDeclaredConstructor(Class.class, int.class);
+                constructor.setAccessible(true);
+                lookup = constructor.newInstance(declaringClass, MethodHandles.Lookup.PRIVATE);
+            }
+            return lookup.unreflectSpecial(method, declaringClass);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Default method " + method + " can't be called by the client", e);
+        }
+    }
+
+    /**
+     * shuts down the default executor - async calls that have been started
+     * are still completed
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new DaemonThreadFactory("light-ws-client-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
@@ -23,12 +23,26 @@
  */
 package com.moebiusgames.light.ws;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -49,33 +63,138 @@ public class WebServiceHandler<T> extends AbstractHandler {
     private final String pathPrefix;
 
     private final List<WebServiceMapping> methodMappings = new ArrayList<>();
+    private final RouteIndex routeIndex;
+
+    private final Map<String, JobStore> jobStores = new HashMap<>();
+    private final List<JobQueue> jobQueues = new ArrayList<>();
+    private final Map<String, BulkheadExecutor> bulkheads = new HashMap<>();
+
+    private BatchEndpoint batchEndpoint = null;
+
+    private StaticAssetEndpoint assetEndpoint = null;
+
+    private String rateLimitKeyHeader = null;
+    private int trustedProxies = 1;
+
+    private AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+
+    private RequestScheduler requestScheduler = null;
+
+    private ObjectMapper objectMapper = null;
+
+    private boolean warmupEnabled = false;
+
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final Object drainLock = new Object();
+    private volatile boolean draining = false;
+
+    //legacy splitter handed to the post mappings, null if not set
+    @SuppressWarnings("deprecation")
+    private final MultipartSplitter multipartSplitter;
 
     public WebServiceHandler(T service) {
-        this(service, new DefaultMultipartSplitter());
+        this(service, null);
     }
 
+    /**
+     * @param service
+     * @param multipartSplitter a custom splitter the multipart bodies are
+     *                          spooled to a temporary file for, null or the
+     *                          {@link DefaultMultipartSplitter} split them
+     *                          while they are read
+     * @deprecated multipart bodies are now split while they are read, use
+     *             {@link #WebServiceHandler(java.lang.Object)}
+     */
+    @Deprecated
     public WebServiceHandler(T service, MultipartSplitter multipartSplitter) {
         this.service = service;
+        this.multipartSplitter = multipartSplitter;
         final Class<? extends Object> serviceClass = service.getClass();
 
         if (serviceClass.isAnnotationPresent(WebService.class)) {
             pathPrefix = serviceClass.getAnnotation(WebService.class).value();
 
-            for (Method method : serviceClass.getMethods()) {
-                if (method.isAnnotationPresent(GetMapping.class)
-                        || method.isAnnotationPresent(PostMapping.class)) {
-                    WebServiceMapping mapping = prepareMapping(pathPrefix, method, multipartSplitter);
-                    if (mapping != null) {
-                        LOGGER.log(Level.INFO, "Registering [{0}] for {1}.{2}()",
-                                new Object[]{mapping.getPath(), serviceClass.getSimpleName(), method.getName()});
-                        methodMappings.add(mapping);
+            final GeneratedRoutes<T> generatedRoutes = loadGeneratedRoutes(serviceClass);
+            final List<Method> routeMethods = generatedRoutes == null
+                    ? null
+                    : resolveRouteMethods(serviceClass, generatedRoutes);
+            if (routeMethods != null) {
+                //route table generated at compile time - no need to scan the class
+                for (int i = 0; i < routeMethods.size(); ++i) {
+                    final int index = i;
+                    registerMapping(routeMethods.get(i),
+                            (target, parameters) -> generatedRoutes.invoke(index, service, parameters));
+                }
+            } else {
+                for (Method method : serviceClass.getMethods()) {
+                    if (method.isAnnotationPresent(GetMapping.class)
+                            || method.isAnnotationPresent(PostMapping.class)
+                            || method.isAnnotationPresent(SseMapping.class)) {
+                        registerMapping(method, null);
                     }
                 }
             }
+
+            if (serviceClass.isAnnotationPresent(StaticAssets.class)) {
+                final StaticAssets staticAssets = serviceClass.getAnnotation(StaticAssets.class);
+                assetEndpoint = new StaticAssetEndpoint(pathPrefix + staticAssets.value(), staticAssets,
+                        serviceClass.getClassLoader());
+                LOGGER.log(Level.INFO, "Registering [{0}] for static assets from {1}",
+                        new Object[]{assetEndpoint.getPath(), assetEndpoint.getSource()});
+            }
         } else {
             throw new IllegalArgumentException("no webservice descriptor present at class "
                     + serviceClass.getCanonicalName());
         }
+
+        final List<RouteIndex.Route> routes = new ArrayList<>(methodMappings.size());
+        for (WebServiceMapping mapping : methodMappings) {
+            routes.add(new RouteIndex.Route(this, mapping));
+        }
+        this.routeIndex = new RouteIndex(routes);
+    }
+
+    private void registerMapping(Method method, MethodInvoker invoker) {
+        WebServiceMapping mapping = prepareMapping(pathPrefix, method);
+        if (mapping != null) {
+            mapping.setBulkhead(prepareBulkhead(method));
+            if (invoker != null) {
+                mapping.setInvoker(invoker);
+            }
+            LOGGER.log(Level.INFO, "Registering [{0}] for {1}.{2}()",
+                    new Object[]{mapping.getPath(), service.getClass().getSimpleName(), method.getName()});
+            methodMappings.add(mapping);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> GeneratedRoutes<T> loadGeneratedRoutes(Class<?> serviceClass) {
+        try {
+            final Class<?> routesClass = Class.forName(serviceClass.getName() + GeneratedRoutes.CLASS_NAME_SUFFIX,
+                    true, serviceClass.getClassLoader());
+            return (GeneratedRoutes<T>) routesClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            //not generated (e.g. annotation processing was disabled) - fall back to reflection
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            LOGGER.log(Level.WARNING, "Could not load generated routes of "
+                    + serviceClass.getCanonicalName() + ", falling back to reflection", e);
+            return null;
+        }
+    }
+
+    private static List<Method> resolveRouteMethods(Class<?> serviceClass, GeneratedRoutes<?> generatedRoutes) {
+        final List<Method> methods = new ArrayList<>();
+        for (GeneratedRoute route : generatedRoutes.getRoutes()) {
+            try {
+                methods.add(serviceClass.getMethod(route.getMethodName(), route.getParameterTypes()));
+            } catch (NoSuchMethodException e) {
+                LOGGER.log(Level.WARNING, "Generated routes of {0} are outdated ({1}), falling back to reflection",
+                        new Object[]{serviceClass.getCanonicalName(), route});
+                return null;
+            }
+        }
+        return methods;
     }
 
     @Override
@@ -85,27 +204,576 @@ public class WebServiceHandler<T> extends AbstractHandler {
             HttpServletRequest request,
             HttpServletResponse response) throws IOException, ServletException {
 
+        if (AsyncBodyReader.resume(request, response)) {
+            baseRequest.setHandled(true);
+            return;
+        }
+
         //only check mapping if path suffix matches
-        if (target.startsWith(pathPrefix)) {
-            for (WebServiceMapping mapping : this.methodMappings) {
-                if (mapping.execute(service, target, request, response)) {
+        if (target.startsWith(pathPrefix) && enter()) {
+            try {
+                if (handleBatch(target, request, response)
+                        || dispatch(target, request, response, true)
+                        || handleAssets(target, request, response)) {
                     baseRequest.setHandled(true);
-                    return;
                 }
+            } finally {
+                leaveWhenComplete(request);
+            }
+        }
+    }
+
+    /**
+     * counts a request as being handled by this handler. Every successful
+     * call has to be followed by {@link #leaveWhenComplete(javax.servlet.http.HttpServletRequest)}.
+     *
+     * @return false if this handler is being drained and must not handle
+     *         the request
+     */
+    boolean enter() {
+        requestsInFlight.incrementAndGet();
+        if (draining) {
+            leave();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * stops counting the request once it is complete (which may be after
+     * it has been handed over to a bulkhead or scheduler or while it is
+     * streaming)
+     *
+     * @param request
+     */
+    void leaveWhenComplete(HttpServletRequest request) {
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new CompletionListener());
+        } else {
+            leave();
+        }
+    }
+
+    private void leave() {
+        if (requestsInFlight.decrementAndGet() == 0 && draining) {
+            synchronized (drainLock) {
+                drainLock.notifyAll();
             }
         }
     }
 
-    private WebServiceMapping prepareMapping(String pathPrefix, Method method,
-            MultipartSplitter multipartSplitter) {
+    /**
+     * the number of requests this handler is handling right now (including
+     * streaming ones)
+     *
+     * @return
+     */
+    public int getRequestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    /**
+     * stops accepting requests and waits until the requests in flight
+     * are complete
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if all requests are complete, false if the time ran out
+     * @throws InterruptedException
+     */
+    boolean drain(long timeoutMillis) throws InterruptedException {
+        draining = true;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (drainLock) {
+            while (requestsInFlight.get() > 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drainLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * all mappings of this handler
+     *
+     * @return
+     */
+    List<RouteIndex.Route> getRoutes() {
+        return routeIndex.getRoutes();
+    }
+
+    /**
+     * handles the request if it was sent to the batch endpoint
+     *
+     * @return true if the request has been handled
+     */
+    boolean handleBatch(String target, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        final BatchEndpoint endpoint = this.batchEndpoint;
+        if (endpoint != null && endpoint.matches(target, request)) {
+            //requests of a batch are always executed by the thread handling the batch
+            endpoint.handle(request, response,
+                    (batchTarget, batchRequest, batchResponse) -> dispatch(batchTarget, batchRequest, batchResponse, false));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * handles the request if it asks for one of the {@link StaticAssets}
+     *
+     * @return true if the request has been handled
+     */
+    boolean handleAssets(String target, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        final StaticAssetEndpoint endpoint = this.assetEndpoint;
+        if (endpoint != null && endpoint.matches(target, request)) {
+            endpoint.handle(target, request, response);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean dispatch(String target, HttpServletRequest request,
+            HttpServletResponse response, boolean allowAsync) throws IOException {
+        final RouteIndex.Match match = routeIndex.find(target, request);
+        if (match != null) {
+            dispatch(match.getRoute().getMapping(), match.getMatcher(), request, response, allowAsync);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * executes one of the mappings of this handler (unless the client is
+     * rate limited)
+     */
+    void dispatch(WebServiceMapping mapping, Matcher matcher, HttpServletRequest request,
+            HttpServletResponse response, boolean allowAsync) throws IOException {
+        if (isRateLimited(mapping, request, response)) {
+            return;
+        }
+        final AdaptiveConcurrencyLimiter limiter = this.concurrencyLimiter;
+        if (limiter != null && !limiter.tryAcquire()) {
+            //shed the request before anything is read
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        final boolean reading;
+        try {
+            reading = allowAsync && readBodyAsync(mapping, matcher, request, response, limiter);
+        } catch (IOException | RuntimeException e) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            throw e;
+        }
+        if (!reading) {
+            execute(mapping, matcher, request, response, allowAsync, limiter, null);
+        }
+    }
+
+    /**
+     * starts reading the body without blocking if the mapping wants so. The
+     * permit of the limiter is kept while the body is read and handed over
+     * to the execution of the request.
+     */
+    private boolean readBodyAsync(WebServiceMapping mapping, Matcher matcher, HttpServletRequest request,
+            HttpServletResponse response, AdaptiveConcurrencyLimiter limiter) throws IOException {
+        return mapping.readBodyAsync(request, response, new AsyncBodyReader.Continuation() {
+
+            @Override
+            public void resume(HttpServletRequest bodyRequest, HttpServletResponse bodyResponse,
+                    SpooledBody body) throws IOException {
+                execute(mapping, matcher, bodyRequest, bodyResponse, true, limiter, body::delete);
+            }
+
+            @Override
+            public void cancel() {
+                if (limiter != null) {
+                    limiter.cancel();
+                }
+            }
+
+        });
+    }
+
+    /**
+     * executes the mapping - the permit of the limiter (if any) has already
+     * been acquired and is released once the request is done
+     */
+    private void execute(WebServiceMapping mapping, Matcher matcher, HttpServletRequest request,
+            HttpServletResponse response, boolean allowAsync, AdaptiveConcurrencyLimiter limiter,
+            Runnable cleanup) throws IOException {
+        //time spent waiting in a bulkhead or scheduler and reading the body
+        //is not part of the latency
+        final AtomicLong start = new AtomicLong();
+        final Runnable onDone = () -> {
+            if (limiter != null) {
+                if (start.get() != 0) {
+                    limiter.release(System.nanoTime() - start.get());
+                } else {
+                    //rejected or failed before the method was invoked
+                    limiter.cancel();
+                }
+            }
+            if (cleanup != null) {
+                cleanup.run();
+            }
+        };
+
+        final Runnable task = () -> mapping.execute(service, matcher, request, response, start);
+        final BulkheadExecutor bulkhead = mapping.getBulkhead();
+        final RequestScheduler scheduler = this.requestScheduler;
+        if (mapping.isStreaming()) {
+            //the response stays open after the method returned, so it is
+            //always executed right away
+            try {
+                task.run();
+            } finally {
+                onDone.run();
+            }
+        } else if (bulkhead != null && allowAsync) {
+            bulkhead.execute(request, response, task, onDone);
+        } else if (scheduler != null && allowAsync) {
+            scheduler.execute(request, response, mapping.getPriority(), task, onDone);
+        } else {
+            try {
+                task.run();
+            } finally {
+                onDone.run();
+            }
+        }
+    }
+
+    private boolean isRateLimited(WebServiceMapping mapping, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        final RateLimiter rateLimiter = mapping.getRateLimiter();
+        if (rateLimiter != null) {
+            final long waitNanos = rateLimiter.tryAcquire(getClientKey(request));
+            if (waitNanos > 0) {
+                final long waitSeconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+                response.setHeader("Retry-After", String.valueOf(waitSeconds));
+                response.sendError(429);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        if (rateLimitKeyHeader != null) {
+            final List<String> entries = new ArrayList<>();
+            final Enumeration<String> values = request.getHeaders(rateLimitKeyHeader);
+            while (values != null && values.hasMoreElements()) {
+                for (String entry : values.nextElement().split(",")) {
+                    entries.add(entry.trim());
+                }
+            }
+            //every proxy appends the address it got the request from, so only
+            //the entries added by the trusted proxies can't be forged by the client
+            if (entries.size() >= trustedProxies) {
+                final String entry = entries.get(entries.size() - trustedProxies);
+                if (!entry.isEmpty()) {
+                    return entry;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Sets the header that identifies a client for rate limiting (see
+     * {@link RateLimit}). By default (or if a request lacks the header)
+     * clients are identified by their remote address. For lists like
+     * X-Forwarded-For the last entry is used, which was added by the proxy
+     * in front of this server.
+     *
+     * @param headerName the name of the header (e.g. X-Forwarded-For or
+     *                   X-Api-Key) or null to use the remote address
+     */
+    public void setRateLimitKeyHeader(String headerName) {
+        setRateLimitKeyHeader(headerName, 1);
+    }
+
+    /**
+     * Sets the header that identifies a client for rate limiting (see
+     * {@link RateLimit}) if there are several trusted proxies in front of
+     * this server: the entry added by the outermost of them identifies the
+     * client. Requests with fewer entries are identified by their remote
+     * address.
+     *
+     * @param headerName the name of the header (e.g. X-Forwarded-For) or
+     *                   null to use the remote address
+     * @param trustedProxies the number of proxies that append to the header
+     */
+    public void setRateLimitKeyHeader(String headerName, int trustedProxies) {
+        if (trustedProxies < 1) {
+            throw new IllegalArgumentException("At least one proxy needs to be trusted");
+        }
+        this.rateLimitKeyHeader = headerName;
+        this.trustedProxies = trustedProxies;
+    }
+
+    /**
+     * Limits the number of requests executed concurrently by this handler.
+     * Requests above the limit are answered with 503 before their body is
+     * read. The same limiter can be used by multiple handlers.
+     *
+     * @param concurrencyLimiter the limiter or null to not limit requests
+     */
+    public void setConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Lets the given scheduler decide when a request is executed. Waiting
+     * requests are executed by priority of their mapping and fairly shared
+     * between tenants.
+     *
+     * @param requestScheduler the scheduler or null to execute all requests
+     *                         right away
+     */
+    public void setRequestScheduler(RequestScheduler requestScheduler) {
+        this.requestScheduler = requestScheduler;
+    }
+
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Sets the object mapper used to read and write JSON by this handler.
+     *
+     * @param objectMapper the mapper or null to use the one shared by all
+     *                     handlers (see {@link ObjectMappers})
+     */
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        for (WebServiceMapping mapping : methodMappings) {
+            mapping.setObjectMapper(objectMapper);
+        }
+        if (batchEndpoint != null) {
+            batchEndpoint.setObjectMapper(objectMapper);
+        }
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper != null ? objectMapper : ObjectMappers.getDefault();
+    }
+
+    /**
+     * If enabled every mapping does the work that would otherwise slow down
+     * its first request (compiling its url pattern, creating the JSON
+     * serializers) when the handler is started, so the server is only
+     * reported as started once it answers at full speed. Disabled by
+     * default, which gives the shortest time to the first request.
+     *
+     * @param warmupEnabled
+     */
+    public void setWarmupEnabled(boolean warmupEnabled) {
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    public boolean isWarmupEnabled() {
+        return warmupEnabled;
+    }
+
+    /**
+     * Enables an endpoint that accepts a JSON array of requests (each with
+     * method, path and an optional body) and answers with a JSON array
+     * containing status code and body of each request. The requests are
+     * executed one after the other.
+     *
+     * @param path the path of the batch endpoint (relative to the path
+     *             of the web service)
+     */
+    public void enableBatchEndpoint(String path) {
+        enableBatchEndpoint(path, null);
+    }
+
+    /**
+     * Enables an endpoint that accepts a JSON array of requests (each with
+     * method, path and an optional body) and answers with a JSON array
+     * containing status code and body of each request. If the batch is
+     * posted with the query parameter parallel=true the requests are
+     * executed in parallel using the given executor. A batch may contain
+     * up to {@link BatchEndpoint#DEFAULT_MAX_REQUESTS} requests.
+     *
+     * @param path the path of the batch endpoint (relative to the path
+     *             of the web service)
+     * @param executor the executor to execute the requests of a batch in
+     *                 parallel or null to always execute them one after
+     *                 the other
+     */
+    public void enableBatchEndpoint(String path, ExecutorService executor) {
+        enableBatchEndpoint(path, executor, BatchEndpoint.DEFAULT_MAX_REQUESTS);
+    }
+
+    /**
+     * Enables an endpoint that accepts a JSON array of requests (each with
+     * method, path and an optional body) and answers with a JSON array
+     * containing status code and body of each request. If the batch is
+     * posted with the query parameter parallel=true the requests are
+     * executed in parallel using the given executor.
+     *
+     * @param path the path of the batch endpoint (relative to the path
+     *             of the web service)
+     * @param executor the executor to execute the requests of a batch in
+     *                 parallel or null to always execute them one after
+     *                 the other
+     * @param maxRequests the maximum number of requests of a batch, larger
+     *                    batches are answered with 413
+     */
+    public void enableBatchEndpoint(String path, ExecutorService executor, int maxRequests) {
+        this.batchEndpoint = new BatchEndpoint(pathPrefix + path, executor, maxRequests);
+        this.batchEndpoint.setObjectMapper(objectMapper);
+        LOGGER.log(Level.INFO, "Registering batch endpoint [{0}] for {1}",
+                new Object[]{batchEndpoint.getPath(), service.getClass().getSimpleName()});
+    }
+
+    private WebServiceMapping prepareMapping(String pathPrefix, Method method) {
         if (method.isAnnotationPresent(GetMapping.class)) {
             return new WebServiceGetMapping(pathPrefix, method);
         } else
             if (method.isAnnotationPresent(PostMapping.class)) {
-                return new WebServicePostMapping(pathPrefix, method, multipartSplitter);
+                final WebServicePostMapping mapping = new WebServicePostMapping(pathPrefix, method,
+                        multipartSplitter);
+                if (method.isAnnotationPresent(Queued.class)) {
+                    mapping.setJobQueue(prepareJobQueue(pathPrefix, method));
+                }
+                if (method.isAnnotationPresent(ResumableUpload.class)) {
+                    prepareResumableUpload(pathPrefix, method, mapping);
+                }
+                return mapping;
+            } else if (method.isAnnotationPresent(SseMapping.class)) {
+                return new WebServiceSseMapping(pathPrefix, method);
             }
         return null;
     }
 
+    private JobQueue prepareJobQueue(String pathPrefix, Method method) {
+        final Queued queued = method.getAnnotation(Queued.class);
+        final String statusPath = queued.statusPath();
+
+        //all queued methods with the same status path share one store
+        JobStore jobStore = jobStores.get(statusPath);
+        if (jobStore == null) {
+            jobStore = new JobStore();
+            jobStores.put(statusPath, jobStore);
+
+            final JobStatusMapping statusMapping = new JobStatusMapping(pathPrefix, statusPath, jobStore);
+            LOGGER.log(Level.INFO, "Registering [{0}] for job states",
+                    new Object[]{statusMapping.getPath()});
+            methodMappings.add(statusMapping);
+        }
+
+        final JobQueue jobQueue = new JobQueue(method, queued, jobStore, pathPrefix + statusPath);
+        jobQueues.add(jobQueue);
+        return jobQueue;
+    }
+
+    private void prepareResumableUpload(String pathPrefix, Method method,
+            WebServicePostMapping mapping) {
+        final ResumableUpload resumableUpload = method.getAnnotation(ResumableUpload.class);
+        final Path spoolDirectory = resumableUpload.spoolDirectory().trim().isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "light-ws-uploads",
+                        service.getClass().getSimpleName() + "-" + method.getName())
+                : Paths.get(resumableUpload.spoolDirectory());
+        final UploadStore uploadStore = new UploadStore(spoolDirectory, resumableUpload.expireHours(), mapping);
+        mapping.setUploadStore(uploadStore);
+
+        final ResumableUploadMapping uploadMapping = new ResumableUploadMapping(pathPrefix,
+                method.getAnnotation(PostMapping.class).value(), uploadStore);
+        LOGGER.log(Level.INFO, "Registering [{0}] for resumable uploads to {1}",
+                new Object[]{uploadMapping.getPath(), spoolDirectory});
+        methodMappings.add(uploadMapping);
+    }
+
+    private BulkheadExecutor prepareBulkhead(Method method) {
+        final Bulkhead bulkhead = method.isAnnotationPresent(Bulkhead.class)
+                ? method.getAnnotation(Bulkhead.class)
+                : service.getClass().getAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            return null;
+        }
+
+        BulkheadExecutor executor = bulkheads.get(bulkhead.value());
+        if (executor == null) {
+            executor = new BulkheadExecutor(bulkhead);
+            bulkheads.put(bulkhead.value(), executor);
+        } else if (!executor.isCompatible(bulkhead)) {
+            throw new IllegalStateException("Bulkhead " + bulkhead.value()
+                    + " is declared with different sizes");
+        }
+        return executor;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        DeadlineWatchdog.start();
+        if (warmupEnabled) {
+            final long start = System.nanoTime();
+            for (WebServiceMapping mapping : methodMappings) {
+                mapping.warmup();
+            }
+            LOGGER.log(Level.INFO, "Warmed up {0} mappings of {1} in {2} ms", new Object[]{
+                methodMappings.size(), service.getClass().getSimpleName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+        }
+        super.doStart();
+    }
+
+    @Override
+    public void destroy() {
+        for (WebServiceMapping mapping : methodMappings) {
+            mapping.shutdown();
+        }
+        for (JobQueue jobQueue : jobQueues) {
+            jobQueue.shutdown();
+        }
+        for (BulkheadExecutor bulkhead : bulkheads.values()) {
+            bulkhead.shutdown();
+        }
+        super.destroy();
+    }
+
+    /**
+     * stops counting an asynchronous request once it is complete
+     */
+    private final class CompletionListener implements AsyncListener {
+
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (done.compareAndSet(false, true)) {
+                leave();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            //completed afterwards
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            //completed afterwards
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            //started again (e.g. by a bulkhead after the body has been read)
+            event.getAsyncContext().addListener(this);
+        }
+
+    }
 
 }
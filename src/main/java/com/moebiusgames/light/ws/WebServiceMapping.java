@@ -23,21 +23,30 @@
  */
 package com.moebiusgames.light.ws;
 
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
 
 /**
  *
@@ -48,14 +57,14 @@ abstract class WebServiceMapping {
     private static final Logger LOGGER = Logger.getLogger(WebServiceMapping.class.getCanonicalName());
 
     private static final Charset UTF8_CHARSET = Charset.forName("UTF-8");
-    private static final ObjectWriter OBJECT_WRITER = new ObjectMapper()
-            .registerModule(new JavaTimeModule()).writer();
+    private static final byte[] EMPTY_JSON = "{}".getBytes(UTF8_CHARSET);
     private static final String PARAM_PATTERN = "\\{(.*?)\\}";
     private static final String PARAM_MATCH_PATTERN = "([^\\/]+?)";
     private static final Pattern URL_PATTERN = Pattern.compile(PARAM_PATTERN);
 
     private String path;
-    private Pattern pattern;
+    private String patternString;
+    private volatile Pattern pattern;
 
     private final HttpMethod httpMethod;
 
@@ -65,10 +74,41 @@ abstract class WebServiceMapping {
     private String resultMimeType;
 
     private Integer fullRequestParameterIndex = null;
+    private Integer requestContextParameterIndex = null;
+
+    private long timeoutMillis = -1;
+
+    private int priority = 0;
+
+    private RateLimiter rateLimiter = null;
+
+    private BulkheadExecutor bulkhead = null;
+
+    private MethodInvoker invoker = null;
+
+    private boolean immutableResult = false;
+    private volatile EncodedResultCache resultCache = null;
+
+    private volatile ObjectMapper objectMapper = null;
 
     public WebServiceMapping(HttpMethod httpMethod, String pathPrefix,
             Method method) {
-        initMapping(pathPrefix, method);
+        this(httpMethod, pathPrefix, null, method);
+    }
+
+    /**
+     * creates a mapping for the given path instead of the path given by
+     * the {@link GetMapping} or {@link PostMapping} annotation of the method
+     *
+     * @param httpMethod
+     * @param pathPrefix
+     * @param rawPattern the path (relative to the prefix) or null to use the
+     *                   path of the annotation
+     * @param method
+     */
+    protected WebServiceMapping(HttpMethod httpMethod, String pathPrefix,
+            String rawPattern, Method method) {
+        initMapping(pathPrefix, rawPattern, method);
         this.httpMethod = httpMethod;
         this.method = method;
     }
@@ -81,8 +121,19 @@ abstract class WebServiceMapping {
         return path;
     }
 
+    /**
+     * returns the url pattern of this mapping. The pattern is compiled
+     * when it is needed for the first time.
+     *
+     * @return
+     */
     public Pattern getPattern() {
-        return pattern;
+        Pattern result = pattern;
+        if (result == null) {
+            result = Pattern.compile(patternString);
+            pattern = result;
+        }
+        return result;
     }
 
     public Method getMethod() {
@@ -93,75 +144,461 @@ abstract class WebServiceMapping {
         return parameterMapping;
     }
 
-    public boolean execute(Object service, String target,
-            HttpServletRequest request, HttpServletResponse httpResponse) {
+    /**
+     * returns the rate limiter of this mapping
+     *
+     * @return the rate limiter or null if the calls are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * the priority of this mapping for the {@link RequestScheduler}
+     *
+     * @return
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * returns the bulkhead this mapping is executed in
+     *
+     * @return the bulkhead or null if the mapping is executed
+     *         by the thread that received the request
+     */
+    public BulkheadExecutor getBulkhead() {
+        return bulkhead;
+    }
+
+    void setBulkhead(BulkheadExecutor bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * invokes the method with the given invoker instead of reflection
+     *
+     * @param invoker
+     */
+    void setInvoker(MethodInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    /**
+     * checks if this mapping is responsible for the given request
+     *
+     * @param target the target of the request
+     * @param request the request
+     * @return the matched path or null if this mapping does not match
+     */
+    public Matcher match(String target, HttpServletRequest request) {
         if (getHttpMethod().matches(request.getMethod())) {
             Matcher matcher = getPattern().matcher(target);
             if (matcher.matches()) {
-                Object[] parameters = null;
-                try {
-                    parameters = formatPathParameters(matcher);
-                    addParameters(request, parameters);
+                return matcher;
+            }
+        }
+        return null;
+    }
 
-                    if (fullRequestParameterIndex != null) {
-                        parameters[fullRequestParameterIndex] = request;
-                    }
-                } catch (Throwable t) {
-                    LOGGER.log(Level.WARNING, "Could not prepare method " + getMethod() + " call", t);
-                    try {
-                        httpResponse.sendError(400);
-                        return true;
-                    } catch (IOException io) {
-                        LOGGER.log(Level.WARNING, "Could not send status 400 to client", io);
-                    }
-                }
+    public boolean execute(Object service, String target,
+            HttpServletRequest request, HttpServletResponse httpResponse) {
+        final Matcher matcher = match(target, request);
+        if (matcher != null) {
+            execute(service, matcher, request, httpResponse);
+            return true;
+        }
+        return false;
+    }
 
-                try {
-                    httpResponse.setStatus(HttpServletResponse.SC_OK);
+    /**
+     * executes the mapping for a request that has already been matched by
+     * {@link #match(java.lang.String, javax.servlet.http.HttpServletRequest)}
+     *
+     * @param service
+     * @param matcher
+     * @param request
+     * @param httpResponse
+     */
+    public void execute(Object service, Matcher matcher,
+            HttpServletRequest request, HttpServletResponse httpResponse) {
+        execute(service, matcher, request, httpResponse, null);
+    }
 
-                    Object result = getMethod().invoke(service, parameters);
-                    if (result instanceof Response) {
-                        Response response = (Response) result;
-                        result = response.getResponseObject();
+    /**
+     * executes the mapping for a request that has already been matched and
+     * tells when the method is invoked
+     *
+     * @param service
+     * @param matcher
+     * @param request
+     * @param httpResponse
+     * @param invocationStart set to {@link System#nanoTime()} once the
+     *                        parameters (including the body) have been read
+     *                        and the method is invoked, left untouched if the
+     *                        method is never invoked (may be null)
+     */
+    public void execute(Object service, Matcher matcher,
+            HttpServletRequest request, HttpServletResponse httpResponse,
+            AtomicLong invocationStart) {
+        final RequestContext context = createRequestContext(request);
+        if (context == null) {
+            bindAndInvoke(service, matcher, request, httpResponse, null, invocationStart);
+            return;
+        }
 
-                        httpResponse.setStatus(response.getStatusCode());
-                    }
+        if (context.checkExpired(System.nanoTime())) {
+            //abandoned before we even started (e.g. while waiting in a bulkhead)
+            sendCancelled(context, httpResponse);
+            return;
+        }
+        context.attach();
+        DeadlineWatchdog.register(context);
+        try {
+            bindAndInvoke(service, matcher, request, httpResponse, context, invocationStart);
+        } finally {
+            DeadlineWatchdog.unregister(context);
+            context.detach();
+        }
+    }
 
-                    if (result instanceof String) {
-                        httpResponse.setContentType(this.resultMimeType == null
-                                ? "text/plain; charset=utf-8"
-                                : this.resultMimeType);
+    private void bindAndInvoke(Object service, Matcher matcher,
+            HttpServletRequest request, HttpServletResponse httpResponse,
+            RequestContext context, AtomicLong invocationStart) {
+        Object[] parameters = null;
+        try {
+            parameters = formatPathParameters(matcher);
+            addParameters(request, parameters);
 
-                        final String resultStr = (String) result;
-                        httpResponse.getOutputStream().write(resultStr.getBytes(UTF8_CHARSET));
-                    } else {
-                        httpResponse.setContentType(this.resultMimeType == null
-                                ? "application/json; charset=utf-8"
-                                : this.resultMimeType);
+            if (fullRequestParameterIndex != null) {
+                parameters[fullRequestParameterIndex] = request;
+            }
+            if (requestContextParameterIndex != null) {
+                parameters[requestContextParameterIndex] = context;
+            }
+        } catch (Throwable t) {
+            if (PayloadTooLargeException.isCause(t)) {
+                LOGGER.log(Level.FINE, "Rejected post to method " + getMethod(), t);
+                sendError(httpResponse, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+                return;
+            }
+            LOGGER.log(Level.WARNING, "Could not prepare method " + getMethod() + " call", t);
+            try {
+                httpResponse.sendError(400);
+                return;
+            } catch (IOException io) {
+                LOGGER.log(Level.WARNING, "Could not send status 400 to client", io);
+            }
+        }
 
-                        if (result != null) {
-                            OBJECT_WRITER.writeValue(httpResponse.getOutputStream(), result);
-                        } else {
-                            httpResponse.getOutputStream().write("{}".getBytes(UTF8_CHARSET));
-                        }
-                    }
-                    httpResponse.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
-                } catch (Throwable t) {
-                    LOGGER.log(Level.WARNING, "Could not execute method " + getMethod(), t);
-                    try {
-                        httpResponse.sendError(500);
-                    } catch (IOException io) {
-                        LOGGER.log(Level.WARNING, "Could not send status 500 to client", io);
-                    }
+        try {
+            httpResponse.setStatus(HttpServletResponse.SC_OK);
+
+            if (invocationStart != null) {
+                invocationStart.set(System.nanoTime());
+            }
+            Object result = invoke(service, parameters);
+            if (context != null && context.isCancelled()) {
+                //nobody is waiting for the result anymore, so don't serialize it
+                sendCancelled(context, httpResponse);
+                return;
+            }
+            writeResult(request, httpResponse, parameters, result);
+        } catch (InvocationTargetException e) {
+            if (context != null && context.isCancelled()) {
+                LOGGER.log(Level.FINE, "Method " + getMethod() + " was cancelled", e.getCause());
+                sendCancelled(context, httpResponse);
+            } else if (PayloadTooLargeException.isCause(e.getCause())) {
+                //lazily decoded post data turned out to be too large
+                LOGGER.log(Level.FINE, "Rejected post to method " + getMethod(), e.getCause());
+                sendError(httpResponse, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            } else if (e.getCause() instanceof MalformedPostDataException) {
+                //lazily decoded post data turned out to be broken
+                LOGGER.log(Level.WARNING, "Could not decode post data for method " + getMethod(), e.getCause());
+                sendError(httpResponse, 400);
+            } else {
+                LOGGER.log(Level.WARNING, "Could not execute method " + getMethod(), e.getCause());
+                sendError(httpResponse, 500);
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Could not execute method " + getMethod(), t);
+            sendError(httpResponse, 500);
+        } finally {
+            releaseParameters(parameters);
+        }
+    }
+
+    /**
+     * writes the result of the method to the response
+     *
+     * @param request
+     * @param httpResponse
+     * @param parameters the parameters the method has been called with
+     * @param result the result of the method
+     * @throws IOException
+     */
+    protected void writeResult(HttpServletRequest request, HttpServletResponse httpResponse,
+            Object[] parameters, Object result) throws IOException {
+        boolean immutable = this.immutableResult;
+        Object version = null;
+        if (result instanceof Response) {
+            Response<?> response = (Response<?>) result;
+            result = response.getResponseObject();
+
+            httpResponse.setStatus(response.getStatusCode());
+            for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+                httpResponse.setHeader(header.getKey(), header.getValue());
+            }
+            if (response.isImmutable()) {
+                immutable = true;
+                version = response.getVersion();
+            }
+        }
+
+        final int status = httpResponse.getStatus();
+        if (status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED) {
+            //these must not have a body
+            return;
+        }
+
+        if (result instanceof File || result instanceof Path) {
+            FileResponse.send(request, httpResponse,
+                    result instanceof File ? ((File) result).toPath() : (Path) result, this.resultMimeType);
+            return;
+        }
+
+        if (immutable && result != null) {
+            writeImmutableResult(request, httpResponse, result, version);
+            return;
+        }
+
+        httpResponse.setContentType(getContentType(result));
+        if (result instanceof String) {
+            BufferPools.writeUtf8((String) result, httpResponse.getOutputStream());
+        } else {
+            if (result != null) {
+                getObjectMapper().writeValue(httpResponse.getOutputStream(), result);
+            } else {
+                httpResponse.getOutputStream().write(EMPTY_JSON);
+            }
+        }
+        httpResponse.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+    }
+
+    /**
+     * writes an immutable result from the cache, encoding it only if it
+     * is not cached yet
+     *
+     * @param request
+     * @param httpResponse
+     * @param result the result (not null)
+     * @param version the version of the result or null to identify it by identity
+     * @throws IOException
+     */
+    private void writeImmutableResult(HttpServletRequest request, HttpServletResponse httpResponse,
+            Object result, Object version) throws IOException {
+        final EncodedResultCache.EncodedResult encoded = getResultCache().get(result, version,
+                value -> value instanceof String
+                        ? ((String) value).getBytes(UTF8_CHARSET)
+                        : getObjectMapper().writeValueAsBytes(value));
+
+        final byte[] gzipped = EncodedResultCache.acceptsGzip(request) ? encoded.getGzipped() : null;
+        final byte[] bytes = gzipped != null ? gzipped : encoded.getBytes();
+
+        httpResponse.setContentType(getContentType(result));
+        httpResponse.setHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+        httpResponse.setHeader("Vary", "Accept-Encoding");
+        if (gzipped != null) {
+            httpResponse.setHeader("Content-Encoding", "gzip");
+        }
+        httpResponse.setContentLength(bytes.length);
+        httpResponse.getOutputStream().write(bytes);
+    }
+
+    private String getContentType(Object result) {
+        if (this.resultMimeType != null) {
+            return this.resultMimeType;
+        }
+        return result instanceof String
+                ? "text/plain; charset=utf-8"
+                : "application/json; charset=utf-8";
+    }
+
+    private EncodedResultCache getResultCache() {
+        EncodedResultCache result = resultCache;
+        if (result == null) {
+            synchronized (this) {
+                result = resultCache;
+                if (result == null) {
+                    result = new EncodedResultCache(EncodedResultCache.DEFAULT_SIZE);
+                    resultCache = result;
                 }
-                return true;
             }
         }
+        return result;
+    }
+
+    /**
+     * creates the context of a request if the request has a deadline or if
+     * the method wants to know about it
+     *
+     * @param request
+     * @return the context or null if none is needed
+     */
+    private RequestContext createRequestContext(HttpServletRequest request) {
+        long timeout = this.timeoutMillis;
+        final String timeoutHeader = request.getHeader(RequestContext.TIMEOUT_HEADER);
+        if (timeoutHeader != null) {
+            try {
+                final long requestedTimeout = Long.parseLong(timeoutHeader.trim());
+                if (requestedTimeout >= 0 && (timeout < 0 || requestedTimeout < timeout)) {
+                    timeout = requestedTimeout;
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.FINE, "Ignoring invalid timeout header {0}", timeoutHeader);
+            }
+        }
+        if (timeout < 0 && requestContextParameterIndex == null) {
+            return null;
+        }
+
+        final Request baseRequest = Request.getBaseRequest(request);
+        final EndPoint endPoint = baseRequest == null || baseRequest.getHttpChannel() == null
+                ? null
+                : baseRequest.getHttpChannel().getEndPoint();
+        final BooleanSupplier connectionOpen = endPoint == null
+                ? () -> true
+                : endPoint::isOpen;
+
+        long deadlineNanos = Long.MAX_VALUE;
+        if (timeout >= 0) {
+            //the deadline counts from the moment the request arrived
+            final long elapsedMillis = baseRequest == null || baseRequest.getTimeStamp() <= 0
+                    ? 0
+                    : Math.max(0, System.currentTimeMillis() - baseRequest.getTimeStamp());
+            deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout - elapsedMillis);
+        }
+        return new RequestContext(deadlineNanos, connectionOpen);
+    }
+
+    private void sendCancelled(RequestContext context, HttpServletResponse httpResponse) {
+        if (context.getCancellationReason() == RequestContext.CancellationReason.DEADLINE_EXCEEDED) {
+            sendError(httpResponse, HttpServletResponse.SC_GATEWAY_TIMEOUT);
+        }
+        //if the connection is closed there is nobody to send anything to
+    }
+
+    private void sendError(HttpServletResponse httpResponse, int statusCode) {
+        try {
+            httpResponse.sendError(statusCode);
+        } catch (IOException io) {
+            LOGGER.log(Level.WARNING, "Could not send status " + statusCode + " to client", io);
+        }
+    }
+
+    /**
+     * returns the object mapper used to read and write JSON
+     *
+     * @return the mapper set for this mapping or the shared one
+     */
+    protected ObjectMapper getObjectMapper() {
+        final ObjectMapper result = objectMapper;
+        return result != null ? result : ObjectMappers.getDefault();
+    }
+
+    void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * starts reading the body of the request without blocking if this
+     * mapping wants so. The request is dispatched again once the body
+     * is complete.
+     *
+     * @param request
+     * @param response
+     * @param continuation executes the request once the body is complete
+     * @return true if reading has been started - the request must not be
+     *         executed now
+     * @throws IOException
+     */
+    public boolean readBodyAsync(HttpServletRequest request, HttpServletResponse response,
+            AsyncBodyReader.Continuation continuation) throws IOException {
+        return false;
+    }
+
+    /**
+     * true if the response of this mapping stays open after the method
+     * returned (so it must not be handed over to a bulkhead or scheduler
+     * which would complete it)
+     *
+     * @return
+     */
+    public boolean isStreaming() {
         return false;
     }
 
+    /**
+     * called when the handler of this mapping is destroyed
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * does all the work that is otherwise done by the first request:
+     * compiles the url pattern and creates the serializer of the result
+     */
+    public void warmup() {
+        getPattern();
+        final JavaType resultType = getResultType();
+        if (resultType != null) {
+            //prefetches (and caches) the serializer of the type
+            getObjectMapper().writerFor(resultType);
+        }
+    }
+
+    private JavaType getResultType() {
+        Type type = method.getGenericReturnType();
+        if (type instanceof ParameterizedType
+                && ((ParameterizedType) type).getRawType() == Response.class) {
+            type = ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        if (type == void.class || type == String.class || type == Object.class
+                || type == File.class || type == Path.class || type == Response.class || !(type instanceof Class || type instanceof ParameterizedType)) {
+            return null;
+        }
+        return getObjectMapper().getTypeFactory().constructType(type);
+    }
+
     protected abstract void addParameters(HttpServletRequest request, Object[] parameters);
 
+    /**
+     * invokes the mapped method. Failures of the method itself are
+     * expected to be reported as InvocationTargetException.
+     *
+     * @param service the service to invoke the method on
+     * @param parameters the already bound parameters
+     * @return the result of the invocation
+     * @throws Exception
+     */
+    protected Object invoke(Object service, Object[] parameters) throws Exception {
+        if (invoker != null) {
+            return invoker.invoke(service, parameters);
+        }
+        return getMethod().invoke(service, parameters);
+    }
+
+    /**
+     * called after the method has been invoked (successful or not) to free
+     * resources that have been bound to the parameters
+     *
+     * @param parameters the parameters the method was called with
+     */
+    protected void releaseParameters(Object[] parameters) {
+        //nothing to release by default
+    }
+
     private Object[] formatPathParameters(Matcher matcher) {
         Object[] result = new Object[method.getParameterCount()];
         Parameter[] parameters = method.getParameters();
@@ -170,55 +607,81 @@ abstract class WebServiceMapping {
             final int parameterId = entry.getValue();
             final Parameter parameter = parameters[parameterId];
             final String raw = matcher.group(groupId);
-            final Class<?> type = parameter.getType();
-            final Object value;
-            if (type == Integer.class || type == int.class) {
-                value = Integer.valueOf(raw);
+            result[parameterId] = convertValue(raw, parameter.getType());
+        }
+        return result;
+    }
+
+    /**
+     * converts the raw value of a path parameter or form field to the
+     * type of the parameter it is bound to
+     *
+     * @param raw the raw value
+     * @param type the type of the parameter
+     * @return the converted value
+     * @throws IllegalStateException if the type is not supported
+     */
+    static Object convertValue(String raw, Class<?> type) {
+        if (type == Integer.class || type == int.class) {
+            return Integer.valueOf(raw);
+        } else {
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(raw);
             } else {
-                if (type == Long.class || type == long.class) {
-                    value = Long.valueOf(raw);
+                if (type == Float.class || type == float.class) {
+                    return Float.valueOf(raw);
                 } else {
-                    if (type == Float.class || type == float.class) {
-                        value = Float.valueOf(raw);
+                    if (type == Double.class || type == double.class) {
+                        return Double.valueOf(raw);
                     } else {
-                        if (type == Double.class || type == double.class) {
-                            value = Double.valueOf(raw);
+                        if (type == Boolean.class || type == boolean.class) {
+                            return Boolean.valueOf(raw);
                         } else {
-                            if (type == Boolean.class || type == boolean.class) {
-                                value = Boolean.valueOf(raw);
+                            if (type == String.class) {
+                                return raw;
                             } else {
-                                if (type == String.class) {
-                                    value = raw;
-                                } else {
-                                    throw new IllegalStateException("Can't map value \""
-                                            + raw + "\" to type " + type.getCanonicalName());
-                                }
+                                throw new IllegalStateException("Can't map value \""
+                                        + raw + "\" to type " + type.getCanonicalName());
                             }
                         }
                     }
                 }
             }
-            result[parameterId] = value;
         }
-        return result;
     }
 
-    private void initMapping(String pathPrefix, Method method) {
-        String rawPattern = null;
+    private void initMapping(String pathPrefix, String rawPattern, Method method) {
         if (method.isAnnotationPresent(GetMapping.class)) {
-            rawPattern = method.getAnnotation(GetMapping.class).value();
+            priority = method.getAnnotation(GetMapping.class).priority();
         } else
             if (method.isAnnotationPresent(PostMapping.class)) {
-                rawPattern = method.getAnnotation(PostMapping.class).value();
+                priority = method.getAnnotation(PostMapping.class).priority();
             }
+        if (rawPattern == null) {
+            if (method.isAnnotationPresent(GetMapping.class)) {
+                rawPattern = method.getAnnotation(GetMapping.class).value();
+            } else
+                if (method.isAnnotationPresent(PostMapping.class)) {
+                    rawPattern = method.getAnnotation(PostMapping.class).value();
+                }
+        }
 
         final Class<?>[] parameterTypes = method.getParameterTypes();
         for (int i = 0; i < parameterTypes.length; ++i) {
             if (parameterTypes[i] == HttpServletRequest.class) {
                 fullRequestParameterIndex = i;
+            } else if (parameterTypes[i] == RequestContext.class) {
+                requestContextParameterIndex = i;
             }
         }
 
+        final Timeout timeout = method.isAnnotationPresent(Timeout.class)
+                ? method.getAnnotation(Timeout.class)
+                : method.getDeclaringClass().getAnnotation(Timeout.class);
+        if (timeout != null) {
+            this.timeoutMillis = timeout.value();
+        }
+
         if (rawPattern == null) {
             throw new IllegalStateException("Given method " + method + " has "
                     + "neither a GetMapping nor a PostMapping annotation");
@@ -233,6 +696,21 @@ abstract class WebServiceMapping {
             }
         }
 
+        //prepare cache of immutable results
+        if (method.isAnnotationPresent(ImmutableResult.class)) {
+            this.immutableResult = true;
+            this.resultCache = new EncodedResultCache(method.getAnnotation(ImmutableResult.class).cacheSize());
+        }
+
+        //prepare rate limit (the limit of the method overrules the one of the service)
+        final RateLimit rateLimit = method.isAnnotationPresent(RateLimit.class)
+                ? method.getAnnotation(RateLimit.class)
+                : method.getDeclaringClass().getAnnotation(RateLimit.class);
+        if (rateLimit != null) {
+            this.rateLimiter = new RateLimiter(rateLimit.permitsPerSecond(), rateLimit.burst(),
+                    rateLimit.maxClients());
+        }
+
         //prepare parameter map
         final Map<String, Integer> parameterMap = new HashMap<>();
         final Parameter[] parameters = method.getParameters();
@@ -276,7 +754,7 @@ abstract class WebServiceMapping {
         }
         patternStr.append('$');
 
-        this.pattern = Pattern.compile(patternStr.toString());
+        this.patternString = patternStr.toString();
     }
 
 }
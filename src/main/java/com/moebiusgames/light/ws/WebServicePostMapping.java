@@ -23,24 +23,46 @@
  */
 package com.moebiusgames.light.ws;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.moebiusgames.light.ws.MultipartSplitter.MultipartSection;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 /**
  *
@@ -48,25 +70,108 @@ import javax.servlet.http.HttpServletRequest;
  */
 public class WebServicePostMapping extends WebServiceMapping {
 
-    private static final Pattern MULTIPART_BOUNDARY_PATTERN = Pattern.compile("boundary\\=(.+)", Pattern.CASE_INSENSITIVE);
-    private static final Pattern MULTIPART_CONTENT_DISPOSITION_PATTERN = Pattern.compile("^Content\\-Disposition\\:[\\s]+form-data", Pattern.CASE_INSENSITIVE);
-    private static final Pattern MULTIPART_CONTENT_DISPOSITION_FILENAME_PATTERN = Pattern.compile("filename\\=\\\"(.*?)\\\"", Pattern.CASE_INSENSITIVE);
-    private static final Pattern MULTIPART_CONTENT_TYPE_PATTERN = Pattern.compile("^Content\\-Type\\:[\\s]+(.+)[\\r\\n]+?", Pattern.CASE_INSENSITIVE);
+    private static final Logger LOGGER = Logger.getLogger(WebServicePostMapping.class.getCanonicalName());
 
-    private static final ObjectReader OBJECT_READER = new ObjectMapper().registerModule(new JavaTimeModule()).reader();
-
-    private final MultipartSplitter multipartSplitter;
+    private static final int MAX_FIELD_SIZE = 1024 * 1024;
 
     private Class<?> postParamType = null;
     private int postParamPos;
 
+    //true if the post parameter is an UploadedFile or a List of them
+    private boolean fileParameter = false;
+
+    private final List<FormBinding> formParameters = new ArrayList<>();
+    private final Set<String> formParameterNames = new HashSet<>();
+
     private boolean raw = false;
 
+    //element type if the post parameter is a lazily decoded Iterator or Stream
+    private JavaType streamElementType = null;
+
+    //true if the post parameter is an Iterator or Stream of live UploadedFiles
+    private boolean liveFiles = false;
+
+    //type a single json post is decoded to
+    private JavaType jsonPostType = null;
+
+    private MicroBatcher batcher = null;
+
+    private JobQueue jobQueue = null;
+
+    private UploadStore uploadStore = null;
+
+    private final UploadSpooler spooler;
+
+    private final AsyncBody asyncBody;
+
+    //legacy splitter, null if multipart bodies are split while they are read
+    @SuppressWarnings("deprecation")
+    private final MultipartSplitter multipartSplitter;
+
+    public WebServicePostMapping(String pathPrefix, Method method) {
+        this(pathPrefix, method, null);
+    }
+
+    /**
+     * @param pathPrefix
+     * @param method
+     * @param multipartSplitter a custom splitter the multipart bodies are
+     *                          spooled to a temporary file for, null or the
+     *                          {@link DefaultMultipartSplitter} split them
+     *                          while they are read
+     * @deprecated multipart bodies are now split while they are read, use
+     *             {@link #WebServicePostMapping(java.lang.String, java.lang.reflect.Method)}
+     */
+    @Deprecated
     public WebServicePostMapping(String pathPrefix, Method method,
             MultipartSplitter multipartSplitter) {
         super(HttpMethod.POST, pathPrefix, method);
-        this.multipartSplitter = multipartSplitter;
+        this.multipartSplitter = multipartSplitter == null
+                || multipartSplitter.getClass() == DefaultMultipartSplitter.class
+                ? null : multipartSplitter;
+        initFormParameters();
         initPostParameter();
+        this.spooler = initSpooler(method);
+        this.asyncBody = method.getAnnotation(AsyncBody.class);
+        if (asyncBody != null && streamElementType != null) {
+            throw new IllegalStateException("Method " + method
+                    + " consumes a streamed post parameter and can't read its body async");
+        }
+    }
+
+    private void initFormParameters() {
+        final Parameter[] parameters = getMethod().getParameters();
+        for (int i = 0; i < parameters.length; ++i) {
+            final Parameter param = parameters[i];
+            if (param.isAnnotationPresent(FormParameter.class)) {
+                final String name = param.getAnnotation(FormParameter.class).value();
+                if (param.getType() == List.class && !isUploadedFileList(param)) {
+                    throw new IllegalStateException("Form parameter " + name + " of " + getMethod()
+                            + " can only be a List of UploadedFile");
+                }
+                formParameters.add(new FormBinding(i, name, param.getType()));
+                formParameterNames.add(name);
+            }
+        }
+    }
+
+    private static UploadSpooler initSpooler(Method method) {
+        //the limit of the method overrules the one of the service
+        final MaxUploadSize maxUploadSize = method.isAnnotationPresent(MaxUploadSize.class)
+                ? method.getAnnotation(MaxUploadSize.class)
+                : method.getDeclaringClass().getAnnotation(MaxUploadSize.class);
+        final UploadDigests digests = method.getAnnotation(UploadDigests.class);
+        return new UploadSpooler(digests == null ? new String[0] : digests.value(),
+                maxUploadSize == null ? -1 : maxUploadSize.value());
+    }
+
+    UploadSpooler getSpooler() {
+        return spooler;
+    }
+
+    private static boolean isUploadedFileList(Parameter param) {
+        return param.getType() == List.class
+                && getElementType(param).getRawClass() == UploadedFile.class;
     }
 
     private void initPostParameter() {
@@ -85,22 +190,115 @@ public class WebServicePostMapping extends WebServiceMapping {
                     }
                     raw = true;
 
+                } else if (method.isAnnotationPresent(Batched.class)) {
+                    initBatching(method, param);
+                } else if (postParamType == UploadedFile.class || isUploadedFileList(param)) {
+                    fileParameter = true;
+                } else if (postParamType == Iterator.class || postParamType == Stream.class) {
+                    streamElementType = getElementType(param);
+                    liveFiles = streamElementType.getRawClass() == UploadedFile.class;
+                    if (liveFiles && formParameters.stream().anyMatch(FormBinding::isFile)) {
+                        throw new IllegalStateException("Method " + method
+                                + " receives live files and can't bind files to form parameters");
+                    }
+                } else {
+                    jsonPostType = TypeFactory.defaultInstance().constructType(param.getParameterizedType());
                 }
                 return; //we take the first best post param (there shoud not be more than one!)
             }
         }
         //if no post parameter is declared then we pass the parameter
+        if (method.isAnnotationPresent(Batched.class)) {
+            throw new IllegalStateException("Batched method " + method + " needs a post parameter");
+        }
+    }
+
+    private void initBatching(Method method, Parameter param) {
+        if (postParamType != List.class || method.getParameterCount() != 1) {
+            throw new IllegalStateException("Batched method " + method
+                    + " must accept exactly one post parameter of type List");
+        }
+        if (method.getReturnType() != void.class
+                && !List.class.isAssignableFrom(method.getReturnType())) {
+            throw new IllegalStateException("Batched method " + method
+                    + " must either return void or a List");
+        }
+        final Batched batched = method.getAnnotation(Batched.class);
+        jsonPostType = getElementType(param);
+        batcher = new MicroBatcher(method, (service, parameters) -> super.invoke(service, parameters),
+                batched.maxSize(), batched.lingerMicros());
+    }
+
+    private static JavaType getElementType(Parameter param) {
+        final Type type = param.getParameterizedType();
+        if (type instanceof ParameterizedType) {
+            return TypeFactory.defaultInstance().constructType(
+                    ((ParameterizedType) type).getActualTypeArguments()[0]);
+        }
+        return TypeFactory.defaultInstance().constructType(Object.class);
+    }
+
+    @Override
+    public void warmup() {
+        super.warmup();
+        //prefetches (and caches) the deserializer of the post parameter
+        if (jsonPostType != null) {
+            getObjectMapper().readerFor(jsonPostType);
+        }
+        if (streamElementType != null && !liveFiles) {
+            getObjectMapper().readerFor(streamElementType);
+        }
+    }
+
+    @Override
+    public boolean readBodyAsync(HttpServletRequest request, HttpServletResponse response,
+            AsyncBodyReader.Continuation continuation) throws IOException {
+        if (asyncBody == null || (request.getContentLengthLong() <= 0
+                && request.getHeader("Transfer-Encoding") == null)) {
+            return false;
+        }
+        if (spooler.getMaxSize() >= 0 && request.getContentLengthLong() > spooler.getMaxSize()) {
+            //rejected when the parameters are added
+            return false;
+        }
+        final String contentType = request.getContentType();
+        if (contentType != null && contentType.trim().toLowerCase().startsWith("application/x-www-form-urlencoded")) {
+            //the container parses forms itself
+            return false;
+        }
+        AsyncBodyReader.start(request, response, asyncBody.memoryThreshold(), spooler.getMaxSize(), continuation);
+        return true;
     }
 
     @Override
     protected void addParameters(HttpServletRequest request, Object[] parameters) {
+        if (spooler.getMaxSize() >= 0 && request.getContentLengthLong() > spooler.getMaxSize()) {
+            //no need to read anything
+            throw new PayloadTooLargeException("Posted body of " + request.getContentLengthLong()
+                    + " bytes exceeds " + spooler.getMaxSize() + " bytes");
+        }
         if (this.postParamType != null) {
             if (!raw) {
                 final String contentType = request.getContentType().trim().toLowerCase();
-                if (contentType.startsWith("application/json")) {
-                    handleJsonPost(request, parameters);
+                if (liveFiles) {
+                    if (contentType.startsWith("multipart/form-data")) {
+                        handleLiveMultipartPost(request, parameters);
+                    } else {
+                        throw new IllegalArgumentException("Given post parameter was of type \"" + request.getContentType()
+                                + "\" and not of type multipart/form-data");
+                    }
+                } else if (streamElementType != null) {
+                    if (contentType.startsWith("application/json")
+                            || contentType.startsWith("application/x-ndjson")) {
+                        handleStreamingJsonPost(request, parameters);
+                    } else {
+                        throw new IllegalArgumentException("Given post parameter was of type \"" + request.getContentType()
+                                + "\" and not of type application/json or application/x-ndjson");
+                    }
                 } else if (contentType.startsWith("multipart/form-data")) {
                     handleMultipartPost(request, parameters);
+                } else if (contentType.startsWith("application/json") && !fileParameter) {
+                    handleJsonPost(request, parameters);
                 } else {
                     throw new IllegalArgumentException("Given post parameter was of type \"" + request.getContentType()
                             + "\" and not of type application/json or multipart/form-data");
@@ -108,27 +306,48 @@ public class WebServicePostMapping extends WebServiceMapping {
             } else {
                 handleRawPost(request, parameters);
             }
+        } else if (!formParameters.isEmpty() && request.getContentType() != null) {
+            final String contentType = request.getContentType().trim().toLowerCase();
+            if (contentType.startsWith("multipart/form-data")) {
+                handleMultipartPost(request, parameters);
+            } else if (contentType.startsWith("application/x-www-form-urlencoded")) {
+                handleFormPost(request, parameters);
+            } else {
+                throw new IllegalArgumentException("Given form was of type \"" + request.getContentType()
+                        + "\" and not of type multipart/form-data or application/x-www-form-urlencoded");
+            }
         }
     }
 
     private void handleRawPost(HttpServletRequest request, Object[] parameters) {
+        final File tmpFile;
         try {
-            final File tmpFile = File.createTempFile("raw", ".dat");
-            tmpFile.deleteOnExit(); //make sure we clean up our mess
+            tmpFile = File.createTempFile("raw", ".dat");
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't store raw post content", e);
+        }
+        tmpFile.deleteOnExit(); //make sure we clean up our mess
 
-            try (InputStream in = request.getInputStream()) {
-                Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try {
+            try (InputStream in = spooler.limit(request.getInputStream());
+                    OutputStream out = new FileOutputStream(tmpFile)) {
+                BufferPools.copy(in, out);
             }
 
             parameters[this.postParamPos] = tmpFile;
         } catch (IOException e) {
+            //the method is not called, so nobody else will clean up
+            tmpFile.delete();
             throw new IllegalStateException("Can't store raw post content", e);
+        } catch (RuntimeException e) {
+            tmpFile.delete();
+            throw e;
         }
     }
 
     private void handleJsonPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
-        try (Reader reader = request.getReader()) {
-            Object postParameter = OBJECT_READER.forType(postParamType).readValue(reader);
+        try (Reader reader = openReader(request)) {
+            Object postParameter = getObjectMapper().readerFor(jsonPostType).readValue(reader);
             parameters[postParamPos] = postParameter;
         } catch (IOException ex) {
             throw new IllegalArgumentException("Given post parameter could "
@@ -136,100 +355,425 @@ public class WebServicePostMapping extends WebServiceMapping {
         }
     }
 
-    private void handleMultipartPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
-        if (postParamType != UploadedFile.class) {
-            throw new IllegalStateException("Multipart upload but method does not accept a uploaded file");
+    private Reader openReader(HttpServletRequest request) throws IOException {
+        if (spooler.getMaxSize() < 0) {
+            return request.getReader();
+        }
+        final String encoding = request.getCharacterEncoding();
+        return new InputStreamReader(spooler.limit(request.getInputStream()),
+                encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+    }
+
+    private void handleStreamingJsonPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
+        try {
+            //the mapping iterator reads either root level values (ndjson) or
+            //the elements of a root level array one after the other
+            final MappingIterator<Object> mappingIterator = getObjectMapper().readerFor(streamElementType)
+                    .readValues(openReader(request));
+            final JsonStreamIterator<Object> iterator = new JsonStreamIterator<>(mappingIterator);
+            parameters[postParamPos] = postParamType == Stream.class
+                    ? iterator.stream()
+                    : iterator;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Given post parameter could "
+                    + "not be read as stream of " + streamElementType, ex);
+        }
+    }
+
+    /**
+     * executes the calls of this mapping in the background using the
+     * given queue
+     *
+     * @param jobQueue
+     */
+    void setJobQueue(JobQueue jobQueue) {
+        if (batcher != null || streamElementType != null) {
+            throw new IllegalStateException("Queued method " + getMethod()
+                    + " must neither be batched nor consume a streamed post parameter");
+        }
+        this.jobQueue = jobQueue;
+    }
+
+    /**
+     * additionally accepts resumable uploads that are spooled to the given store
+     *
+     * @param uploadStore
+     */
+    void setUploadStore(UploadStore uploadStore) {
+        if (postParamType != UploadedFile.class || getMethod().getParameterCount() != 1
+                || getPath().indexOf('{') >= 0) {
+            throw new IllegalStateException("Resumable upload method " + getMethod()
+                    + " must accept an uploaded file as its only parameter and have no path parameters");
+        }
+        if (jobQueue != null) {
+            throw new IllegalStateException("Resumable upload method " + getMethod()
+                    + " must not be queued");
+        }
+        this.uploadStore = uploadStore;
+    }
+
+    @Override
+    public void execute(Object service, Matcher matcher,
+            HttpServletRequest request, HttpServletResponse httpResponse,
+            AtomicLong invocationStart) {
+        if (uploadStore != null && request.getHeader("Upload-Length") != null) {
+            createUpload(request, httpResponse);
+        } else {
+            super.execute(service, matcher, request, httpResponse, invocationStart);
+        }
+    }
+
+    private void createUpload(HttpServletRequest request, HttpServletResponse httpResponse) {
+        try {
+            try {
+                final String id = uploadStore.create(request);
+                httpResponse.setStatus(HttpServletResponse.SC_CREATED);
+                httpResponse.setHeader("Location", request.getRequestURL() + "/" + id);
+                httpResponse.setHeader("Tus-Resumable", UploadStore.TUS_VERSION);
+                httpResponse.setContentLength(0);
+            } catch (PayloadTooLargeException e) {
+                LOGGER.log(Level.FINE, "Rejected upload for method " + getMethod(), e);
+                httpResponse.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Could not create upload for method " + getMethod(), e);
+                httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not create upload for method " + getMethod(), e);
+            try {
+                httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            } catch (IOException io) {
+                LOGGER.log(Level.WARNING, "Could not send status 500 to client", io);
+            }
+        }
+    }
+
+    /**
+     * calls the method with a completed resumable upload
+     *
+     * @param service
+     * @param uploadedFile
+     * @return the result of the method
+     * @throws Exception
+     */
+    Object invokeUpload(Object service, UploadedFile uploadedFile) throws Exception {
+        final Object[] parameters = new Object[getMethod().getParameterCount()];
+        parameters[postParamPos] = uploadedFile;
+        return invoke(service, parameters);
+    }
+
+    @Override
+    protected Object invoke(Object service, Object[] parameters) throws Exception {
+        if (batcher != null) {
+            return batcher.submit(service, parameters[postParamPos]);
         }
-        final String contentType = request.getContentType().trim();
-        final Matcher matcher = MULTIPART_BOUNDARY_PATTERN.matcher(contentType);
-        if (!matcher.find()) {
-            throw new IllegalArgumentException("multipart not properly structured");
+        if (jobQueue != null) {
+            return jobQueue.submit(() -> super.invoke(service, parameters));
         }
-        final String boundary = "--" + matcher.group(1);
-        if (boundary.trim().isEmpty()) {
-            throw new IllegalArgumentException("delimeter must not be blank");
+        return super.invoke(service, parameters);
+    }
+
+    @Override
+    protected void releaseParameters(Object[] parameters) {
+        if (streamElementType != null && parameters != null) {
+            final Object postParameter = parameters[postParamPos];
+            try {
+                if (postParameter instanceof Stream) {
+                    ((Stream<?>) postParameter).close();
+                } else if (postParameter instanceof Closeable) {
+                    ((Closeable) postParameter).close();
+                }
+            } catch (IOException | RuntimeException e) {
+                //the request is over anyway - nothing more we can do
+            }
         }
+    }
 
+    private void handleMultipartPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
+        if (!fileParameter && formParameters.isEmpty()) {
+            throw new IllegalStateException("Multipart upload but method does not accept a uploaded file");
+        }
+
+        final List<UploadedFile> files = new ArrayList<>();
+        final Map<String, String> fields = new HashMap<>();
         try {
-            File tmpFile = File.createTempFile("uploaded", ".dat");
-            tmpFile.deleteOnExit();
-
-            try (InputStream in = request.getInputStream()) {
-                Files.copy(in, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-
-            // now parse the uploaded content for multipart boundaries
-            List<MultipartSection> sections = multipartSplitter.split(boundary, tmpFile);
-            UploadedFile uploadedFile = null;
-
-            // extract sections to find the one with a file
-            MultipartSection fileSection = null;
-            String fileName = null;
-            String fileContentType = null;
-            int bytesOffset = 0;
-            for (MultipartSection section : sections) {
-                try (LineReaderInputStream in = new LineReaderInputStream(new FileInputStream(tmpFile))) {
-                    in.skip(section.getStart());
-
-                    String line;
-                    bytesOffset = 0;
-                    while ((line = in.readLine()) != null
-                            && !line.trim().isEmpty()) {
-                        if (MULTIPART_CONTENT_DISPOSITION_PATTERN.matcher(line).find()) {
-                            final Matcher fileNameMatcher = MULTIPART_CONTENT_DISPOSITION_FILENAME_PATTERN.matcher(line);
-                            if (fileNameMatcher.find()) {
-                                fileName = fileNameMatcher.group(1);
-                            }
-                        } else {
-                            final Matcher contentTypeMatcher = MULTIPART_CONTENT_TYPE_PATTERN.matcher(line);
-                            if (contentTypeMatcher.find()) {
-                                fileContentType = contentTypeMatcher.group(1);
-                            }
-                        }
-                        bytesOffset += line.length();
+            try {
+                if (multipartSplitter != null) {
+                    collectSplitParts(request, files, fields);
+                } else {
+                    //all parts are extracted in one pass while the body is read
+                    collectParts(spooler.limit(request.getInputStream()), request.getContentType(),
+                            files, fields);
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not decode multipart body", e);
+            }
+
+            if (fileParameter) {
+                if (postParamType == UploadedFile.class) {
+                    if (files.isEmpty()) {
+                        throw new IllegalArgumentException("Could not find a file in uploaded multipart content");
                     }
-                    bytesOffset += 2;
+                    parameters[postParamPos] = files.get(0);
+                } else {
+                    parameters[postParamPos] = files;
+                }
+            }
+            for (FormBinding binding : formParameters) {
+                if (binding.type == UploadedFile.class) {
+                    parameters[binding.position] = files.stream()
+                            .filter(file -> binding.name.equals(file.getFieldName()))
+                            .findFirst().orElse(null);
+                } else if (binding.type == List.class) {
+                    parameters[binding.position] = files.stream()
+                            .filter(file -> binding.name.equals(file.getFieldName()))
+                            .collect(Collectors.toList());
+                } else {
+                    parameters[binding.position] = binding.convert(fields.get(binding.name));
+                }
+            }
+        } catch (RuntimeException e) {
+            //the method is not called, so nobody else will clean up
+            for (UploadedFile file : files) {
+                file.getTemporaryFile().delete();
+            }
+            throw e;
+        }
+    }
 
-                    //found a file - mark it and break loop
-                    if (fileContentType != null) {
-                        fileSection = section;
-                        break;
+    private void collectParts(InputStream in, String contentType,
+            List<UploadedFile> files, Map<String, String> fields) throws IOException {
+        final MultipartStream parts = new MultipartStream(in, contentType);
+        try {
+            while (parts.nextPart()) {
+                if (parts.isFile()) {
+                    if (!parts.getFileName().isEmpty() && acceptsFile(parts.getName())) {
+                        files.add(spooler.spool(parts.getBody(), parts.getFileName(),
+                                parts.getContentType() == null ? "application/octet-stream" : parts.getContentType(),
+                                parts.getName()));
                     }
+                } else if (parts.getName() != null && formParameterNames.contains(parts.getName())) {
+                    fields.putIfAbsent(parts.getName(), readField(parts));
                 }
             }
+        } finally {
+            parts.close();
+        }
+    }
 
-            //now actually extract the file
-            if (fileSection != null) {
-                try (FileInputStream in = new FileInputStream(tmpFile)) {
-                    in.skip(fileSection.getStart() + bytesOffset);
+    /**
+     * spools the whole body to a temporary file and lets the legacy splitter
+     * find the sections in it
+     */
+    @SuppressWarnings("deprecation")
+    private void collectSplitParts(HttpServletRequest request,
+            List<UploadedFile> files, Map<String, String> fields) throws IOException {
+        final String contentType = request.getContentType();
+        final String boundary = "--" + MultipartStream.getBoundary(contentType);
+        final File body = File.createTempFile("multipart", ".dat");
+        try {
+            try (InputStream in = spooler.limit(request.getInputStream());
+                    OutputStream out = new FileOutputStream(body)) {
+                BufferPools.copy(in, out);
+            }
+            //every section is wrapped in boundaries again to be read like a single part body
+            final byte[] head = (boundary + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            final byte[] tail = ("\r\n" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            for (MultipartSplitter.MultipartSection section : multipartSplitter.split(boundary, body)) {
+                try (InputStream in = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                        new ByteArrayInputStream(head),
+                        new SectionInputStream(body, section),
+                        new ByteArrayInputStream(tail))))) {
+                    collectParts(in, contentType, files, fields);
+                }
+            }
+        } finally {
+            body.delete();
+        }
+    }
 
-                    byte[] buffer = new byte[4096];
-                    int read;
+    /**
+     * reads a section of a file
+     */
+    @SuppressWarnings("deprecation")
+    private static class SectionInputStream extends FilterInputStream {
 
-                    File tmpPartFile = File.createTempFile("part", ".dat");
-                    tmpPartFile.deleteOnExit();
+        private long remaining;
 
-                    int bytesLeft = fileSection.getEnd() - (fileSection.getStart() + bytesOffset);
-                    try (FileOutputStream fOut = new FileOutputStream(tmpPartFile)) {
-                        while (bytesLeft > 0
-                                && (read = in.read(buffer, 0, Math.min(bytesLeft, buffer.length))) > -1) {
-                            if (read > 0) {
-                                fOut.write(buffer, 0, read);
-                                bytesLeft -= read;
-                            }
-                        }
-                    }
-                    uploadedFile = new UploadedFile(tmpPartFile, fileName, contentType);
+        SectionInputStream(File file, MultipartSplitter.MultipartSection section) throws IOException {
+            super(new FileInputStream(file));
+            long skip = section.getStart();
+            while (skip > 0) {
+                final long skipped = in.skip(skip);
+                if (skipped <= 0) {
+                    throw new MalformedPostDataException("multipart section is out of bounds", null);
                 }
+                skip -= skipped;
+            }
+            this.remaining = Math.max(0, section.getEnd() - section.getStart());
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int value = in.read();
+            if (value >= 0) {
+                --remaining;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
             }
+            final int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
 
-            if (uploadedFile == null) {
-                throw new IllegalArgumentException("Could not find a file in uploaded multipart content");
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private void handleLiveMultipartPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
+        final Map<String, String> fields = new HashMap<>();
+        MultipartStream parts = null;
+        try {
+            final InputStream in = spooler.limit(request.getInputStream());
+            parts = new MultipartStream(in, request.getContentType());
+
+            //only the fields in front of the first file can be bound
+            boolean pending = false;
+            while (parts.nextPart()) {
+                if (parts.isFile()) {
+                    if (!parts.getFileName().isEmpty()) {
+                        pending = true;
+                        break;
+                    }
+                } else if (parts.getName() != null && formParameterNames.contains(parts.getName())) {
+                    fields.putIfAbsent(parts.getName(), readField(parts));
+                }
+            }
+            for (FormBinding binding : formParameters) {
+                parameters[binding.position] = binding.convert(fields.get(binding.name));
             }
-            parameters[this.postParamPos] = uploadedFile;
 
+            final MultipartFileIterator iterator = new MultipartFileIterator(parts, pending, in);
+            parameters[postParamPos] = postParamType == Stream.class
+                    ? iterator.stream()
+                    : iterator;
+            //the iterator releases the parts when it is closed
+            parts = null;
         } catch (IOException e) {
             throw new IllegalArgumentException("Could not decode multipart body", e);
+        } finally {
+            if (parts != null) {
+                parts.close();
+            }
+        }
+    }
+
+    private void handleFormPost(HttpServletRequest request, Object[] parameters) throws IllegalArgumentException {
+        for (FormBinding binding : formParameters) {
+            if (binding.isFile()) {
+                throw new IllegalArgumentException("Url encoded form can't contain file " + binding.name);
+            }
+            parameters[binding.position] = binding.convert(request.getParameter(binding.name));
+        }
+    }
+
+    private boolean acceptsFile(String fieldName) {
+        if (fileParameter) {
+            return true;
+        }
+        for (FormBinding binding : formParameters) {
+            if (binding.name.equals(fieldName) && binding.isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readField(MultipartStream parts) throws IOException {
+        final ByteBuffer buffer = BufferPools.acquire(BufferPools.COPY_BUFFER_SIZE);
+        try {
+            final byte[] bytes = buffer.array();
+            final int offset = buffer.arrayOffset();
+            final InputStream in = parts.getBody();
+            //most fields fit into the buffer, larger ones are collected
+            ByteArrayOutputStream out = null;
+            int length = 0;
+            int read;
+            while ((read = in.read(bytes, offset + length, BufferPools.COPY_BUFFER_SIZE - length)) >= 0) {
+                length += read;
+                if (length == BufferPools.COPY_BUFFER_SIZE) {
+                    if (out == null) {
+                        out = new ByteArrayOutputStream();
+                    }
+                    out.write(bytes, offset, length);
+                    length = 0;
+                    if (out.size() > MAX_FIELD_SIZE) {
+                        throw new IllegalArgumentException("Form field " + parts.getName() + " is too large");
+                    }
+                }
+            }
+            if (out == null) {
+                return new String(bytes, offset, length, StandardCharsets.UTF_8);
+            }
+            out.write(bytes, offset, length);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            BufferPools.release(buffer);
+        }
+    }
+
+    /**
+     * a parameter bound to a form field
+     */
+    private static class FormBinding {
+
+        private final int position;
+        private final String name;
+        private final Class<?> type;
+
+        FormBinding(int position, String name, Class<?> type) {
+            this.position = position;
+            this.name = name;
+            this.type = type;
+        }
+
+        boolean isFile() {
+            return type == UploadedFile.class || type == List.class;
+        }
+
+        Object convert(String raw) {
+            if (raw == null) {
+                if (type.isPrimitive()) {
+                    throw new IllegalArgumentException("Form field " + name + " is missing");
+                }
+                return null;
+            }
+            return convertValue(raw, type);
         }
 
     }
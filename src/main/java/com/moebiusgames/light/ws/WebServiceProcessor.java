@@ -0,0 +1,268 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@link GeneratedRoutes} class for every class annotated with
+ * {@link WebService} at compile time. It contains the table of all mapped
+ * methods and invokes them directly, so the handler needs neither to scan the
+ * service via reflection on startup nor to call the methods via reflection.
+ * Path parameters that have no matching {@link GetParameter} are reported as
+ * compile errors.
+ * <p>
+ * The processor is registered as service, so it runs automatically when
+ * light-ws is on the classpath of javac.
+ *
+ * @author Florian Frankenberger
+ */
+public class WebServiceProcessor extends AbstractProcessor {
+
+    private static final Pattern URL_PATTERN = Pattern.compile("\\{(.*?)\\}");
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        final Set<String> types = new HashSet<>();
+        types.add(WebService.class.getCanonicalName());
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(WebService.class)) {
+            if (element.getKind() != ElementKind.CLASS
+                    || element.getModifiers().contains(Modifier.PRIVATE)) {
+                //interfaces and classes the generated code can't access use the reflection path
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            final List<Route> routes = collectRoutes(type);
+            try {
+                generate(type, routes);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Could not generate route table: " + e.getMessage(), type);
+            }
+        }
+        return false;
+    }
+
+    private List<Route> collectRoutes(TypeElement type) {
+        final List<Route> routes = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)
+                    || method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            final String httpMethod;
+            final String path;
+            if (method.getAnnotation(GetMapping.class) != null) {
+                httpMethod = HttpMethod.GET.name();
+                path = method.getAnnotation(GetMapping.class).value();
+            } else if (method.getAnnotation(PostMapping.class) != null) {
+                httpMethod = HttpMethod.POST.name();
+                path = method.getAnnotation(PostMapping.class).value();
+            } else if (method.getAnnotation(SseMapping.class) != null) {
+                httpMethod = HttpMethod.GET.name();
+                path = method.getAnnotation(SseMapping.class).value();
+            } else {
+                continue;
+            }
+            checkPathParameters(method, path);
+            routes.add(new Route(httpMethod, path, method));
+        }
+        return routes;
+    }
+
+    private void checkPathParameters(ExecutableElement method, String path) {
+        final Set<String> getParameters = new HashSet<>();
+        for (VariableElement parameter : method.getParameters()) {
+            final GetParameter getParameter = parameter.getAnnotation(GetParameter.class);
+            if (getParameter != null) {
+                getParameters.add(getParameter.value());
+            }
+        }
+        final Matcher matcher = URL_PATTERN.matcher(path);
+        while (matcher.find()) {
+            if (!getParameters.contains(matcher.group(1))) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Parameter " + matcher.group(1) + " of path " + path
+                        + " has no matching @GetParameter", method);
+            }
+        }
+    }
+
+    private void generate(TypeElement type, List<Route> routes) throws IOException {
+        final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String className = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + GeneratedRoutes.CLASS_NAME_SUFFIX;
+        final String serviceType = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Route table of {@link ").append(serviceType).append("}\n")
+                .append(" * (generated by light-ws - do not edit)\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(className)
+                .append(" implements com.moebiusgames.light.ws.GeneratedRoutes<").append(serviceType).append("> {\n\n")
+                .append("    private static final java.util.List<com.moebiusgames.light.ws.GeneratedRoute> ROUTES =\n")
+                .append("            java.util.Collections.unmodifiableList(java.util.Arrays.asList(");
+        for (int i = 0; i < routes.size(); ++i) {
+            final Route route = routes.get(i);
+            source.append(i == 0 ? "\n" : ",\n")
+                    .append("                    new com.moebiusgames.light.ws.GeneratedRoute(\"")
+                    .append(route.httpMethod).append("\", ")
+                    .append(toStringLiteral(route.path)).append(", \"")
+                    .append(route.method.getSimpleName()).append('"');
+            for (VariableElement parameter : route.method.getParameters()) {
+                source.append(", ").append(erasure(parameter.asType())).append(".class");
+            }
+            source.append(')');
+        }
+        source.append("));\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<com.moebiusgames.light.ws.GeneratedRoute> getRoutes() {\n")
+                .append("        return ROUTES;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Object invoke(int routeIndex, ").append(serviceType)
+                .append(" service, Object[] parameters) throws Exception {\n")
+                .append("        if (routeIndex < 0 || routeIndex >= ROUTES.size()) {\n")
+                .append("            throw new IllegalArgumentException(\"Unknown route \" + routeIndex);\n")
+                .append("        }\n")
+                .append("        try {\n")
+                .append("            switch (routeIndex) {\n");
+        for (int i = 0; i < routes.size(); ++i) {
+            final ExecutableElement method = routes.get(i).method;
+            final StringBuilder call = new StringBuilder();
+            call.append("service.").append(method.getSimpleName()).append('(');
+            final List<? extends VariableElement> parameters = method.getParameters();
+            for (int j = 0; j < parameters.size(); ++j) {
+                if (j > 0) {
+                    call.append(", ");
+                }
+                call.append('(').append(castType(parameters.get(j).asType()))
+                        .append(") parameters[").append(j).append(']');
+            }
+            call.append(')');
+
+            source.append("                case ").append(i).append(":\n");
+            if (method.getReturnType().getKind() == TypeKind.VOID) {
+                source.append("                    ").append(call).append(";\n")
+                        .append("                    return null;\n");
+            } else {
+                source.append("                    return ").append(call).append(";\n");
+            }
+        }
+        source.append("                default:\n")
+                .append("                    return null;\n")
+                .append("            }\n")
+                .append("        } catch (Throwable t) {\n")
+                .append("            throw new java.lang.reflect.InvocationTargetException(t);\n")
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            //unboxing cast
+            return processingEnv.getTypeUtils().boxedClass(
+                    processingEnv.getTypeUtils().getPrimitiveType(type.getKind())).getQualifiedName().toString();
+        }
+        return erasure(type);
+    }
+
+    private static String toStringLiteral(String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static class Route {
+
+        private final String httpMethod;
+        private final String path;
+        private final ExecutableElement method;
+
+        public Route(String httpMethod, String path, ExecutableElement method) {
+            this.httpMethod = httpMethod;
+            this.path = path;
+            this.method = method;
+        }
+
+    }
+
+}
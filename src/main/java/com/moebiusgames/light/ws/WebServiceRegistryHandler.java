@@ -0,0 +1,319 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandlerContainer;
+
+/**
+ * A handler for a jetty web server that hosts many classes annotated as
+ * WebService. Instead of chaining one {@link WebServiceHandler} per service
+ * in a HandlerList (where each request is checked against every service
+ * one after the other) the mappings of all services are merged into one
+ * index, so each request is dispatched with a single lookup. Routes of
+ * different services that conflict with each other are reported when
+ * the handler is created.
+ * <p>
+ * Each service is still wrapped in its own {@link WebServiceHandler}, so
+ * rate limiting, concurrency limits, schedulers and batch endpoints can be
+ * configured per service.
+ * <p>
+ * Services can be registered and unregistered while the server is running.
+ * The route index is never changed, instead a new one is created and swapped
+ * in atomically, so requests are dispatched without any locking and requests
+ * in flight finish against the index they were dispatched with. The handler
+ * of an unregistered service is only stopped once its requests in flight
+ * are complete (or the drain timeout ran out).
+ *
+ * @author Florian Frankenberger
+ */
+public class WebServiceRegistryHandler extends AbstractHandlerContainer {
+
+    private static final Logger LOGGER = Logger.getLogger(WebServiceRegistryHandler.class.getCanonicalName());
+
+    /**
+     * the handlers and their index, replaced as a whole on every change
+     */
+    private static final class State {
+
+        private final List<WebServiceHandler<?>> handlers;
+        private final RouteIndex routeIndex;
+
+        private State(List<WebServiceHandler<?>> handlers) {
+            this.handlers = Collections.unmodifiableList(handlers);
+            final List<RouteIndex.Route> routes = new ArrayList<>();
+            for (WebServiceHandler<?> handler : handlers) {
+                routes.addAll(handler.getRoutes());
+            }
+            this.routeIndex = new RouteIndex(routes);
+        }
+
+    }
+
+    private volatile State state;
+
+    private volatile long drainTimeoutMillis = 30000;
+
+    /**
+     * creates a registry for the given services
+     *
+     * @param services objects of classes annotated with {@link WebService}
+     */
+    public WebServiceRegistryHandler(Object... services) {
+        this(wrap(services));
+    }
+
+    /**
+     * creates a registry for the services of the given (already configured)
+     * handlers
+     *
+     * @param handlers
+     * @throws IllegalStateException if routes of the services conflict
+     */
+    public WebServiceRegistryHandler(List<WebServiceHandler<?>> handlers) {
+        this.state = new State(new ArrayList<>(handlers));
+        for (WebServiceHandler<?> handler : handlers) {
+            addBean(handler);
+        }
+        LOGGER.log(Level.INFO, "Indexed {0} routes of {1} services",
+                new Object[]{state.routeIndex.getRoutes().size(), handlers.size()});
+    }
+
+    private static List<WebServiceHandler<?>> wrap(Object... services) {
+        final List<WebServiceHandler<?>> handlers = new ArrayList<>(services.length);
+        for (Object service : services) {
+            handlers.add(new WebServiceHandler<>(service));
+        }
+        return handlers;
+    }
+
+    /**
+     * the handlers of all services currently in this registry
+     *
+     * @return
+     */
+    public List<WebServiceHandler<?>> getServiceHandlers() {
+        return state.handlers;
+    }
+
+    /**
+     * adds the given service to this registry
+     *
+     * @param <T>
+     * @param service an object of a class annotated with {@link WebService}
+     * @return the handler created for the service
+     * @throws IllegalStateException if the routes of the service conflict
+     *                               with the ones already registered
+     */
+    public <T> WebServiceHandler<T> register(T service) {
+        final WebServiceHandler<T> handler = new WebServiceHandler<>(service);
+        register(handler);
+        return handler;
+    }
+
+    /**
+     * adds the service of the given (already configured) handler to this
+     * registry. If the registry is running the handler is started before
+     * its routes become visible.
+     *
+     * @param handler
+     * @throws IllegalStateException if the routes of the service conflict
+     *                               with the ones already registered
+     */
+    public synchronized void register(WebServiceHandler<?> handler) {
+        final List<WebServiceHandler<?>> handlers = new ArrayList<>(state.handlers);
+        handlers.add(handler);
+        //fails on conflicts before anything is changed
+        final State newState = new State(handlers);
+
+        handler.setServer(getServer());
+        addBean(handler);
+        if (isStarted()) {
+            try {
+                handler.start();
+            } catch (Exception e) {
+                removeBean(handler);
+                throw new IllegalStateException("Could not start handler of "
+                        + handler.service.getClass().getCanonicalName(), e);
+            }
+        }
+        this.state = newState;
+        LOGGER.log(Level.INFO, "Registered {0} with {1} routes", new Object[]{
+            handler.service.getClass().getSimpleName(), handler.getRoutes().size()});
+    }
+
+    /**
+     * removes the given service from this registry. New requests are not
+     * dispatched to the service anymore, requests already being executed
+     * by it are finished before its handler is stopped (waiting at most
+     * the drain timeout, so long running streams are closed eventually).
+     * Queued jobs are still executed.
+     *
+     * @param service the service as registered before
+     * @return true if the service was registered
+     */
+    public boolean unregister(Object service) {
+        WebServiceHandler<?> removed = null;
+        synchronized (this) {
+            final List<WebServiceHandler<?>> handlers = new ArrayList<>(state.handlers);
+            for (WebServiceHandler<?> handler : handlers) {
+                if (handler.service == service) {
+                    removed = handler;
+                    break;
+                }
+            }
+            if (removed == null) {
+                return false;
+            }
+            handlers.remove(removed);
+            //from now on no request is dispatched to the handler anymore
+            this.state = new State(handlers);
+        }
+
+        try {
+            if (!removed.drain(drainTimeoutMillis)) {
+                LOGGER.log(Level.WARNING, "{0} requests of {1} were still running after {2} ms",
+                        new Object[]{removed.getRequestsInFlight(), service.getClass().getSimpleName(),
+                            drainTimeoutMillis});
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        //removing the bean stops it as well
+        removeBean(removed);
+        try {
+            removed.stop();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not stop handler of "
+                    + service.getClass().getCanonicalName(), e);
+        }
+        removed.destroy();
+        LOGGER.log(Level.INFO, "Unregistered {0}", service.getClass().getSimpleName());
+        return true;
+    }
+
+    /**
+     * Sets the time {@link #unregister(java.lang.Object)} waits for the
+     * requests in flight of a service before its handler is stopped.
+     * Defaults to 30 seconds.
+     *
+     * @param drainTimeoutMillis
+     */
+    public void setDrainTimeout(long drainTimeoutMillis) {
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    public long getDrainTimeout() {
+        return drainTimeoutMillis;
+    }
+
+    @Override
+    public void handle(
+            String target,
+            Request baseRequest,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException, ServletException {
+
+        if (AsyncBodyReader.resume(request, response)) {
+            baseRequest.setHandled(true);
+            return;
+        }
+
+        //batch endpoints take precedence over mappings, just like in a single handler
+        final State current = this.state;
+        for (WebServiceHandler<?> handler : current.handlers) {
+            if (handleOutsideIndex(handler, target, request, response, true)) {
+                baseRequest.setHandled(true);
+                return;
+            }
+        }
+
+        State state;
+        do {
+            state = this.state;
+            final RouteIndex.Match match = state.routeIndex.find(target, request);
+            if (match == null) {
+                break;
+            }
+            final WebServiceHandler<?> handler = match.getRoute().getHandler();
+            if (handler.enter()) {
+                try {
+                    handler.dispatch(match.getRoute().getMapping(),
+                            match.getMatcher(), request, response, true);
+                } finally {
+                    handler.leaveWhenComplete(request);
+                }
+                baseRequest.setHandled(true);
+                return;
+            }
+            //the handler is being unregistered, so a new index has been swapped in already
+        } while (state != this.state);
+
+        //static assets are only checked if no mapping matches
+        for (WebServiceHandler<?> handler : state.handlers) {
+            if (handleOutsideIndex(handler, target, request, response, false)) {
+                baseRequest.setHandled(true);
+                return;
+            }
+        }
+    }
+
+    private static boolean handleOutsideIndex(WebServiceHandler<?> handler, String target,
+            HttpServletRequest request, HttpServletResponse response, boolean batch) throws IOException {
+        if (!handler.enter()) {
+            return false;
+        }
+        try {
+            return batch
+                    ? handler.handleBatch(target, request, response)
+                    : handler.handleAssets(target, request, response);
+        } finally {
+            handler.leaveWhenComplete(request);
+        }
+    }
+
+    @Override
+    public Handler[] getHandlers() {
+        final List<WebServiceHandler<?>> handlers = state.handlers;
+        return handlers.toArray(new Handler[handlers.size()]);
+    }
+
+    @Override
+    protected void expandChildren(List<Handler> list, Class<?> byClass) {
+        for (Handler handler : getHandlers()) {
+            expandHandler(handler, list, byClass);
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A mapping of a method annotated with {@link SseMapping}. The method gets
+ * a new {@link SseEmitter}, when it returns the request is put into async
+ * mode and stays open until the emitter is closed.
+ *
+ * @author Florian Frankenberger
+ */
+class WebServiceSseMapping extends WebServiceMapping {
+
+    /**
+     * one thread sends the heartbeats of all mappings
+     */
+    private static final class HeartbeatScheduler {
+
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("light-ws-sse-heartbeat-"));
+
+    }
+
+    private final int emitterParameterIndex;
+    private final int maxQueuedEvents;
+    private final int heartbeatSeconds;
+    private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> heartbeat = null;
+
+    public WebServiceSseMapping(String pathPrefix, Method method) {
+        super(HttpMethod.GET, pathPrefix, method.getAnnotation(SseMapping.class).value(), method);
+        final SseMapping sseMapping = method.getAnnotation(SseMapping.class);
+
+        int index = -1;
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; ++i) {
+            if (parameterTypes[i] == SseEmitter.class) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalStateException("Method " + method + " needs a parameter of type SseEmitter");
+        }
+        if (method.getReturnType() != void.class) {
+            throw new IllegalStateException("Method " + method + " must return void");
+        }
+        this.emitterParameterIndex = index;
+        this.maxQueuedEvents = sseMapping.maxQueuedEvents();
+        this.heartbeatSeconds = sseMapping.heartbeatSeconds();
+    }
+
+    /**
+     * starts sending heartbeats when the first subscriber connects
+     */
+    private synchronized void startHeartbeat() {
+        if (heartbeat == null && heartbeatSeconds > 0) {
+            final long idleNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+            heartbeat = HeartbeatScheduler.INSTANCE.scheduleWithFixedDelay(() -> {
+                for (SseEmitter subscriber : subscribers) {
+                    subscriber.heartbeat(idleNanos);
+                }
+            }, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * the number of currently connected subscribers
+     *
+     * @return
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    protected void addParameters(HttpServletRequest request, Object[] parameters) {
+        if (request instanceof BatchRequest) {
+            throw new IllegalArgumentException("Events can't be subscribed to within a batch");
+        }
+        parameters[emitterParameterIndex] = new SseEmitter(getObjectMapper(), maxQueuedEvents);
+    }
+
+    @Override
+    protected void writeResult(HttpServletRequest request, HttpServletResponse httpResponse,
+            Object[] parameters, Object result) throws IOException {
+        final SseEmitter emitter = (SseEmitter) parameters[emitterParameterIndex];
+        if (emitter.isClosed()) {
+            return;
+        }
+        httpResponse.setStatus(HttpServletResponse.SC_OK);
+        httpResponse.setContentType("text/event-stream; charset=utf-8");
+        httpResponse.setHeader("Cache-Control", "no-cache");
+        //tells nginx not to buffer the stream
+        httpResponse.setHeader("X-Accel-Buffering", "no");
+
+        final AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                emitter.close();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                emitter.close();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                emitter.close();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        startHeartbeat();
+        subscribers.add(emitter);
+        emitter.onClose(() -> subscribers.remove(emitter));
+        emitter.open(asyncContext);
+    }
+
+    @Override
+    protected void releaseParameters(Object[] parameters) {
+        if (parameters != null && parameters[emitterParameterIndex] instanceof SseEmitter) {
+            final SseEmitter emitter = (SseEmitter) parameters[emitterParameterIndex];
+            if (!subscribers.contains(emitter)) {
+                //the method failed, so the stream has never been opened
+                emitter.close();
+            }
+        }
+        super.releaseParameters(parameters);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        final List<SseEmitter> emitters = new ArrayList<>(subscribers);
+        for (SseEmitter emitter : emitters) {
+            emitter.complete();
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * All methods mapped to the same WebSocket path: one that gets the
+ * messages decoded from JSON and one that gets binary messages as they
+ * are. Messages are dispatched to the method and its result is sent back
+ * to the client.
+ *
+ * @author Florian Frankenberger
+ */
+class WebSocketEndpoint {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketEndpoint.class.getCanonicalName());
+
+    /**
+     * a method receiving messages
+     */
+    private static final class Receiver {
+
+        private final Method method;
+        private final int messageIndex;
+        private final int sessionIndex;
+        private final ObjectReader reader;
+
+        private Receiver(Method method, ObjectMapper objectMapper) {
+            this.method = method;
+            int message = -1;
+            int session = -1;
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; ++i) {
+                if (parameterTypes[i] == WebSocketSession.class) {
+                    session = i;
+                } else if (message < 0) {
+                    message = i;
+                } else {
+                    throw new IllegalStateException("Method " + method + " must accept exactly one message "
+                            + "and optionally the WebSocketSession");
+                }
+            }
+            if (message < 0) {
+                throw new IllegalStateException("Method " + method + " needs a message parameter");
+            }
+            this.messageIndex = message;
+            this.sessionIndex = session;
+            this.reader = parameterTypes[message] == ByteBuffer.class
+                    ? null
+                    : objectMapper.readerFor(objectMapper.getTypeFactory()
+                            .constructType(method.getGenericParameterTypes()[message]));
+        }
+
+        private boolean isBinary() {
+            return reader == null;
+        }
+
+        private void receive(Object service, WebSocketSession session, Object message) {
+            final Object[] parameters = new Object[method.getParameterCount()];
+            parameters[messageIndex] = message;
+            if (sessionIndex >= 0) {
+                parameters[sessionIndex] = session;
+            }
+            try {
+                final Object result = method.invoke(service, parameters);
+                if (result != null) {
+                    session.send(result);
+                }
+            } catch (InvocationTargetException e) {
+                LOGGER.log(Level.WARNING, "Could not execute method " + method, e.getCause());
+            } catch (IllegalAccessException e) {
+                LOGGER.log(Level.WARNING, "Could not execute method " + method, e);
+            }
+        }
+
+    }
+
+    private final String path;
+    private Receiver decodingReceiver = null;
+    private Receiver binaryReceiver = null;
+
+    public WebSocketEndpoint(String path) {
+        if (path.indexOf('{') >= 0) {
+            throw new IllegalStateException("WebSocket path " + path + " must not contain parameters");
+        }
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * adds a method annotated with {@link WebSocketMapping}
+     *
+     * @param method
+     * @param objectMapper the mapper to decode messages with
+     */
+    public void addMethod(Method method, ObjectMapper objectMapper) {
+        final Receiver receiver = new Receiver(method, objectMapper);
+        if (receiver.isBinary()) {
+            if (binaryReceiver != null) {
+                throw new IllegalStateException("WebSocket path " + path
+                        + " has more than one method receiving ByteBuffers");
+            }
+            binaryReceiver = receiver;
+        } else {
+            if (decodingReceiver != null) {
+                throw new IllegalStateException("WebSocket path " + path
+                        + " has more than one method receiving decoded messages");
+            }
+            decodingReceiver = receiver;
+        }
+    }
+
+    public void onText(Object service, WebSocketSession session, String text) {
+        if (decodingReceiver == null) {
+            LOGGER.log(Level.FINE, "Ignoring text message to {0}", path);
+            return;
+        }
+        final Object message;
+        try {
+            message = decodingReceiver.reader.readValue(text);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not decode message to " + path, e);
+            return;
+        }
+        decodingReceiver.receive(service, session, message);
+    }
+
+    public void onBinary(Object service, WebSocketSession session, ByteBuffer data) {
+        if (binaryReceiver != null) {
+            binaryReceiver.receive(service, session, data);
+            return;
+        }
+        if (decodingReceiver == null) {
+            LOGGER.log(Level.FINE, "Ignoring binary message to {0}", path);
+            return;
+        }
+        final Object message;
+        try {
+            if (data.hasArray()) {
+                message = decodingReceiver.reader.readValue(data.array(),
+                        data.arrayOffset() + data.position(), data.remaining());
+            } else {
+                final byte[] bytes = new byte[data.remaining()];
+                data.get(bytes);
+                message = decodingReceiver.reader.readValue(bytes);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not decode message to " + path, e);
+            return;
+        }
+        decodingReceiver.receive(service, session, message);
+    }
+
+    /**
+     * encodes a message as it is sent by {@link WebSocketSession#send(java.lang.Object)}
+     *
+     * @param message
+     * @param objectMapper
+     * @return either a String (text frame) or a ByteBuffer (binary frame)
+     */
+    static Object encode(Object message, ObjectMapper objectMapper) {
+        if (message instanceof String || message instanceof ByteBuffer) {
+            return message;
+        }
+        if (message instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) message);
+        }
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Could not serialize message " + message, e);
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.server.WebSocketHandler;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+/**
+ * A handler for a jetty web server that connects WebSockets to the methods
+ * of a class annotated as WebService which are annotated with
+ * {@link WebSocketMapping}. All other requests are passed on to the wrapped
+ * {@link WebServiceHandler} of the same service, so one handler serves both:
+ * <pre>
+ * server.setHandler(new WebSocketServiceHandler(new MyWebService()));
+ * </pre>
+ * Messages are dispatched by the thread that read them and replies are
+ * sent without blocking.
+ *
+ * @author Florian Frankenberger
+ */
+public class WebSocketServiceHandler extends WebSocketHandler {
+
+    private static final Logger LOGGER = Logger.getLogger(WebSocketServiceHandler.class.getCanonicalName());
+
+    private static final String ENDPOINT_ATTRIBUTE = WebSocketServiceHandler.class.getName() + ".endpoint";
+
+    private final Object service;
+    private final ObjectMapper objectMapper;
+    private final Map<String, WebSocketEndpoint> endpoints = new HashMap<>();
+
+    private long idleTimeout = 300_000;
+    private int maxMessageSize = 65536;
+
+    public WebSocketServiceHandler(Object service) {
+        this(new WebServiceHandler<>(service));
+    }
+
+    /**
+     * creates a handler for the WebSockets of the service of the given
+     * (already configured) handler, all other requests are passed on to it.
+     * Messages are decoded with the object mapper of the given handler.
+     *
+     * @param handler
+     */
+    public WebSocketServiceHandler(WebServiceHandler<?> handler) {
+        this.service = handler.service;
+        this.objectMapper = handler.getObjectMapper();
+        setHandler(handler);
+
+        final String pathPrefix = service.getClass().getAnnotation(WebService.class).value();
+        for (Method method : service.getClass().getMethods()) {
+            if (method.isAnnotationPresent(WebSocketMapping.class)) {
+                final String path = pathPrefix + method.getAnnotation(WebSocketMapping.class).value();
+                endpoints.computeIfAbsent(path, WebSocketEndpoint::new).addMethod(method, objectMapper);
+                LOGGER.log(Level.INFO, "Registering WebSocket [{0}] for {1}.{2}()",
+                        new Object[]{path, service.getClass().getSimpleName(), method.getName()});
+            }
+        }
+    }
+
+    /**
+     * sets the time after which idle connections are closed, must be set
+     * before the handler is started
+     *
+     * @param idleTimeoutMillis
+     */
+    public void setIdleTimeout(long idleTimeoutMillis) {
+        this.idleTimeout = idleTimeoutMillis;
+    }
+
+    /**
+     * sets the maximum size of a message in bytes, must be set before the
+     * handler is started
+     *
+     * @param maxMessageSize
+     */
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public void configure(WebSocketServletFactory factory) {
+        factory.getPolicy().setIdleTimeout(idleTimeout);
+        factory.getPolicy().setMaxTextMessageSize(maxMessageSize);
+        factory.getPolicy().setMaxBinaryMessageSize(maxMessageSize);
+        factory.setCreator((request, response) -> {
+            //the upgrade request has no servlet context to get its path from
+            final Object endpoint = request.getHttpServletRequest().getAttribute(ENDPOINT_ATTRIBUTE);
+            return endpoint instanceof WebSocketEndpoint ? new Connection((WebSocketEndpoint) endpoint) : null;
+        });
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request,
+            HttpServletResponse response) throws IOException, ServletException {
+        final WebSocketEndpoint endpoint = endpoints.get(target);
+        if (endpoint != null) {
+            //upgrades the request if it is a WebSocket handshake
+            request.setAttribute(ENDPOINT_ATTRIBUTE, endpoint);
+            super.handle(target, baseRequest, request, response);
+        } else if (getHandler() != null) {
+            getHandler().handle(target, baseRequest, request, response);
+        }
+    }
+
+    /**
+     * a connected WebSocket
+     */
+    private final class Connection implements WebSocketListener, WebSocketSession, WriteCallback {
+
+        private final WebSocketEndpoint endpoint;
+        private volatile Session session = null;
+
+        private Connection(WebSocketEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void onWebSocketConnect(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void onWebSocketText(String message) {
+            endpoint.onText(service, this, message);
+        }
+
+        @Override
+        public void onWebSocketBinary(byte[] payload, int offset, int length) {
+            endpoint.onBinary(service, this, ByteBuffer.wrap(payload, offset, length));
+        }
+
+        @Override
+        public void onWebSocketClose(int statusCode, String reason) {
+            this.session = null;
+        }
+
+        @Override
+        public void onWebSocketError(Throwable cause) {
+            LOGGER.log(Level.FINE, "WebSocket error on " + endpoint.getPath(), cause);
+        }
+
+        @Override
+        public boolean send(Object message) {
+            final Session current = this.session;
+            if (current == null || !current.isOpen()) {
+                return false;
+            }
+            final Object encoded = WebSocketEndpoint.encode(message, objectMapper);
+            if (encoded instanceof String) {
+                current.getRemote().sendString((String) encoded, this);
+            } else {
+                current.getRemote().sendBytes((ByteBuffer) encoded, this);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isOpen() {
+            final Session current = this.session;
+            return current != null && current.isOpen();
+        }
+
+        @Override
+        public void close() {
+            final Session current = this.session;
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            LOGGER.log(Level.FINE, "Could not send WebSocket message on " + endpoint.getPath(), cause);
+        }
+
+        @Override
+        public void writeSuccess() {
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerList;
+
+/**
+ * Measures the garbage produced by uploads (multipart), file downloads and
+ * json results, once with the shared {@link BufferPools} pool and once with
+ * a pool that allocates a new buffer every time. Allocations are counted
+ * for all threads of the JVM (client included - it does the same in both
+ * runs). Run it with
+ * <pre>
+ * java -cp ... com.moebiusgames.light.ws.BufferPoolBenchmark [requests]
+ * </pre>
+ *
+ * @author Florian Frankenberger
+ */
+public class BufferPoolBenchmark {
+
+    private static final byte[] UPLOAD;
+
+    static {
+        final StringBuilder body = new StringBuilder("--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n\r\n"
+                + "benchmark\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"data.bin\"\r\n\r\n");
+        for (int i = 0; i < 20000; ++i) {
+            body.append("0123456789");
+        }
+        body.append("\r\n--xyz--\r\n");
+        UPLOAD = body.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        System.out.println("requests per kind: " + requests);
+        //warm up both variants first so class loading etc. is not measured
+        run(null, BufferPools.getDefault(), requests / 4);
+        run(null, new AllocatingPool(), requests / 4);
+
+        run("pooled", BufferPools.getDefault(), requests);
+        run("allocating", new AllocatingPool(), requests);
+    }
+
+    private static void run(String name, ByteBufferPool pool, int requests) throws Exception {
+        final ByteBufferPool previous = BufferPools.getDefault();
+        BufferPools.setDefault(pool);
+        final Server server = new Server(0);
+        server.setHandler(new HandlerList(
+                new WebServiceHandler<>(new GetWebService()),
+                new WebServiceHandler<>(new PostWebService())
+        ));
+        server.start();
+        try {
+            final URI uploadUri = server.getURI().resolve("/web/attach/1");
+            final URI downloadUri = server.getURI().resolve("/web/export");
+            final URI textUri = server.getURI().resolve("/web/test/world");
+
+            System.gc();
+            final long allocatedBefore = getAllocatedBytes();
+            final long[] gcBefore = getGcCountAndTime();
+            for (int i = 0; i < requests; ++i) {
+                upload(uploadUri);
+                download(downloadUri);
+                download(textUri);
+            }
+            final long allocated = getAllocatedBytes() - allocatedBefore;
+            final long[] gcAfter = getGcCountAndTime();
+
+            if (name != null) {
+                System.out.printf("%-10s: %8.1f KB allocated per request round, %4d gcs, %5d ms gc time%n",
+                        name, allocated / 1024.0 / requests,
+                        gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+            }
+        } finally {
+            server.stop();
+            BufferPools.setDefault(previous);
+        }
+    }
+
+    private static void upload(URI uri) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=xyz");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(UPLOAD.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(UPLOAD);
+        }
+        drain(connection);
+    }
+
+    private static void download(URI uri) throws IOException {
+        drain((HttpURLConnection) uri.toURL().openConnection());
+    }
+
+    private static void drain(HttpURLConnection connection) throws IOException {
+        if (connection.getResponseCode() != 200) {
+            throw new IllegalStateException("Request failed with " + connection.getResponseCode());
+        }
+        try (InputStream in = connection.getInputStream()) {
+            while (in.skip(Long.MAX_VALUE) > 0) {
+                //skipping
+            }
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        final com.sun.management.ThreadMXBean threads
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                allocated += bytes;
+            }
+        }
+        return allocated;
+    }
+
+    private static long[] getGcCountAndTime() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    /**
+     * a pool that doesn't pool at all
+     */
+    private static class AllocatingPool implements ByteBufferPool {
+
+        @Override
+        public ByteBuffer acquire(int size, boolean direct) {
+            return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+
+        @Override
+        public void release(ByteBuffer buffer) {
+            //garbage
+        }
+
+    }
+
+}
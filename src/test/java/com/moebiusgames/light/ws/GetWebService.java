@@ -23,13 +23,30 @@
  */
 package com.moebiusgames.light.ws;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  *
  * @author Florian Frankenberger
  */
 @WebService("/web")
+@StaticAssets(value = "/ui", classpath = "webui", cacheSize = 16 * 1024)
 public class GetWebService {
 
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private File exportFile = null;
+    private File bytesFile = null;
+
+    final ResultObject reference = new ResultObject(String.join(" ",
+            Collections.nCopies(100, "reference")));
+
     @GetMapping("/test/{name}")
     public ResultObject testMe(
             @GetParameter("name")
@@ -38,6 +55,28 @@ public class GetWebService {
         return new ResultObject("Hello " + name);
     }
 
+    @GetMapping("/alias/{name}")
+    public String alias(@GetParameter("name") String name) {
+        return "alias " + name;
+    }
+
+    //same route as above, only one of them is used
+    @GetMapping("/alias/{other}")
+    public String otherAlias(@GetParameter("other") String other) {
+        return "alias " + other;
+    }
+
+    @GetMapping("/alias/latest")
+    public String latestAlias() {
+        return "latest alias";
+    }
+
+    @GetMapping("/caller")
+    public String caller() {
+        //tells whether the method was invoked via reflection or by the generated routes
+        return new Throwable().getStackTrace()[1].getClassName();
+    }
+
     @GetMapping("/test2")
     public Response<ResultObject> testMe2() {
         return new Response<>(new ResultObject("Hello there"), 500);
@@ -48,4 +87,112 @@ public class GetWebService {
         return new Response<>(null, 404);
     }
 
+    @GetMapping("/reference")
+    @ImmutableResult
+    public ResultObject reference() {
+        return reference;
+    }
+
+    @GetMapping("/reference/{version}")
+    public Response<ResultObject> versionedReference(@GetParameter("version") int version) {
+        return new Response<>(new ResultObject("version " + version + " of " + System.nanoTime()))
+                .markImmutable(version);
+    }
+
+    @GetMapping("/limited")
+    @RateLimit(permitsPerSecond = 0.1, burst = 2)
+    public ResultObject limited() {
+        return new ResultObject("Hello limited");
+    }
+
+    @GetMapping("/slow/{millis}")
+    public ResultObject slow(@GetParameter("millis") long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return new ResultObject("Hello after " + millis);
+    }
+
+    @GetMapping("/isolated/{millis}")
+    @Bulkhead(value = "slow", threads = 1, queueSize = 1)
+    public ResultObject isolated(@GetParameter("millis") long millis) throws InterruptedException {
+        return slow(millis);
+    }
+
+    @GetMapping("/deadline/{millis}")
+    @Timeout(200)
+    public ResultObject deadline(@GetParameter("millis") long millis,
+            RequestContext context) throws InterruptedException {
+        Thread.sleep(millis);
+        return new ResultObject("Hello with " + (context.getRemainingMillis() > 0 ? "time left" : "no time left"));
+    }
+
+    @GetMapping(value = "/health", priority = 10)
+    public ResultObject health() {
+        return new ResultObject("healthy");
+    }
+
+    @SseMapping("/events/{topic}")
+    public void subscribe(@GetParameter("topic") String topic, SseEmitter emitter) {
+        emitter.send("welcome", topic);
+        subscribers.add(emitter);
+        emitter.onClose(() -> subscribers.remove(emitter));
+    }
+
+    public void publish(Object event) {
+        for (SseEmitter subscriber : subscribers) {
+            subscriber.send(event);
+        }
+    }
+
+    public void completeSubscribers() {
+        for (SseEmitter subscriber : subscribers) {
+            subscriber.complete();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @WebSocketMapping("/control")
+    public ResultObject control(InfoObject message) {
+        return new ResultObject("control " + message.getInfo());
+    }
+
+    @WebSocketMapping("/control")
+    public void controlBinary(ByteBuffer data, WebSocketSession session) {
+        final byte[] reversed = new byte[data.remaining()];
+        for (int i = reversed.length - 1; i >= 0; --i) {
+            reversed[i] = data.get();
+        }
+        session.send(reversed);
+    }
+
+    @GetMapping("/export")
+    public synchronized File export() throws IOException {
+        if (exportFile == null) {
+            exportFile = File.createTempFile("export", ".txt");
+            exportFile.deleteOnExit();
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 100; ++i) {
+                content.append("0123456789");
+            }
+            Files.write(exportFile.toPath(), content.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        return exportFile;
+    }
+
+    @GetMapping("/bytes")
+    public synchronized File bytes() throws IOException {
+        if (bytesFile == null) {
+            bytesFile = File.createTempFile("bytes", ".bin");
+            bytesFile.deleteOnExit();
+            final byte[] content = new byte[256];
+            for (int i = 0; i < content.length; ++i) {
+                content[i] = (byte) i;
+            }
+            Files.write(bytesFile.toPath(), content);
+        }
+        return bytesFile;
+    }
+
 }
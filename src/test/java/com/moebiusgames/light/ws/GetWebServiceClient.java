@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Client interface for {@link GetWebService} and {@link PostWebService}
+ *
+ * @author Florian Frankenberger
+ */
+@WebService("/web")
+public interface GetWebServiceClient {
+
+    @GetMapping("/test/{name}")
+    ResultObject testMe(@GetParameter("name") String name);
+
+    @GetMapping("/test/{name}")
+    CompletableFuture<ResultObject> testMeAsync(@GetParameter("name") String name);
+
+    @GetMapping("/test2")
+    Response<ResultObject> testMe2();
+
+    @GetMapping("/test3")
+    ResultObject testMe3();
+
+    @PostMapping("/say/{yourname}/{number}")
+    ResultObject saySomething(
+            @GetParameter("yourname") String yourName,
+            @PostParameter InfoObject sth,
+            @GetParameter("number") int number);
+
+    default String greet(String name) {
+        return testMe(name).getMsg();
+    }
+
+    static GetWebServiceClient create(WebServiceClient client) {
+        return client.createProxy(GetWebServiceClient.class);
+    }
+
+    //not mapped, so it can't be called
+    void unmapped();
+
+}
@@ -23,6 +23,17 @@
  */
 package com.moebiusgames.light.ws;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
 /**
  *
  * @author Florian Frankenberger
@@ -39,4 +50,99 @@ public class PostWebService {
         return new ResultObject(sth.getInfo() + " for " + yourName + " and number " + number);
     }
 
+    @PostMapping("/join")
+    public ResultObject join(@PostParameter Stream<InfoObject> infos) {
+        return new ResultObject(infos.map(InfoObject::getInfo)
+                .collect(Collectors.joining(",")));
+    }
+
+    @PostMapping("/count")
+    public ResultObject count(@PostParameter Iterator<InfoObject> infos) {
+        int counter = 0;
+        while (infos.hasNext()) {
+            infos.next();
+            counter++;
+        }
+        return new ResultObject(String.valueOf(counter));
+    }
+
+    @PostMapping("/batched")
+    @Batched(maxSize = 8, lingerMicros = 50000)
+    public List<Object> batched(@PostParameter List<InfoObject> infos) {
+        List<Object> results = new ArrayList<>();
+        for (InfoObject info : infos) {
+            if (info.getInfo().isEmpty()) {
+                results.add(new Response<>(new ResultObject("empty"), 422));
+            } else {
+                results.add(new ResultObject(info.getInfo() + " of " + infos.size()));
+            }
+        }
+        return results;
+    }
+
+    @PostMapping("/queued")
+    @Queued(threads = 1, queueSize = 10)
+    public ResultObject queued(@PostParameter InfoObject info) {
+        return new ResultObject("processed " + info.getInfo());
+    }
+
+    @PostMapping("/attach/{ticket}")
+    public ResultObject attach(@GetParameter("ticket") int ticket,
+            @FormParameter("comment") String comment,
+            @FormParameter("priority") Integer priority,
+            @PostParameter List<UploadedFile> files) {
+        return new ResultObject(ticket + ":" + comment + ":" + priority + ":" + files.stream()
+                .map(file -> file.getFieldName() + "=" + file.getFileName()
+                        + "(" + file.getContentType() + "," + file.getSize() + ")")
+                .collect(Collectors.joining(",")));
+    }
+
+    @PostMapping("/checksum")
+    @UploadDigests({"SHA-256"})
+    @MaxUploadSize(1024)
+    public String checksum(@PostParameter UploadedFile file) {
+        return file.getSize() + ":" + file.getDigestHex("SHA-256");
+    }
+
+    @PostMapping("/raw")
+    @MaxUploadSize(1024)
+    public long raw(@RawPostData File body) {
+        final long length = body.length();
+        body.delete();
+        return length;
+    }
+
+    @PostMapping("/forward")
+    public String forward(@FormParameter("target") String target,
+            @PostParameter Iterator<UploadedFile> files) throws IOException {
+        final StringBuilder result = new StringBuilder(target);
+        while (files.hasNext()) {
+            final UploadedFile file = files.next();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final long transferred = file.transferTo(Channels.newChannel(out));
+            result.append(',').append(file.getFileName()).append('=').append(transferred)
+                    .append('/').append(out.size()).append('/').append(file.isLive());
+        }
+        return result.toString();
+    }
+
+    @PostMapping("/async")
+    @AsyncBody(memoryThreshold = 16)
+    public ResultObject asyncBody(@PostParameter InfoObject info) {
+        return new ResultObject("received " + info.getInfo());
+    }
+
+    @PostMapping("/upload")
+    @ResumableUpload
+    public ResultObject upload(@PostParameter UploadedFile file) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        try (InputStream in = file.openInputStream()) {
+            int read;
+            while ((read = in.read()) >= 0) {
+                content.append((char) read);
+            }
+        }
+        return new ResultObject(file.getFileName() + ":" + content.toString());
+    }
+
 }
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.jetty.server.Server;
+
+/**
+ * Measures the latency of cheap high priority requests (health checks) while
+ * the server is flooded with slow bulk requests, once without and once with
+ * a {@link RequestScheduler}. Run it with
+ * <pre>
+ * java -cp ... com.moebiusgames.light.ws.RequestSchedulerBenchmark [bulkClients] [seconds]
+ * </pre>
+ *
+ * @author Florian Frankenberger
+ */
+public class RequestSchedulerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int bulkClients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        final int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        System.out.println("bulk clients: " + bulkClients + ", duration: " + seconds + "s");
+        run("without scheduler", null, bulkClients, seconds);
+        run("with scheduler", new RequestScheduler(4, 1000), bulkClients, seconds);
+    }
+
+    private static void run(String name, RequestScheduler scheduler, int bulkClients,
+            int seconds) throws Exception {
+        final WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        handler.setRequestScheduler(scheduler);
+        final Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        final URI bulkUri = server.getURI().resolve("/web/slow/20");
+        final URI healthUri = server.getURI().resolve("/web/health");
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(bulkClients + 1);
+        final List<Long> bulkLatencies = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> healthLatencies = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < bulkClients; ++i) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    bulkLatencies.add(get(bulkUri));
+                }
+                return null;
+            });
+        }
+        executor.submit(() -> {
+            while (running.get()) {
+                healthLatencies.add(get(healthUri));
+                Thread.sleep(10);
+            }
+            return null;
+        });
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        server.stop();
+
+        System.out.println(name);
+        print("  bulk  ", bulkLatencies);
+        print("  health", healthLatencies);
+    }
+
+    private static long get(URI uri) throws Exception {
+        final long start = System.nanoTime();
+        final HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.getResponseCode();
+        connection.getInputStream().close();
+        return System.nanoTime() - start;
+    }
+
+    private static void print(String name, List<Long> latencies) {
+        final List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            System.out.println(name + ": no requests");
+            return;
+        }
+        System.out.printf("%s: %6d requests, p50 %7.2f ms, p99 %7.2f ms%n", name, sorted.size(),
+                percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        final int index = Math.min(sorted.size() - 1, (int) (sorted.size() * percentile));
+        return sorted.get(index) / 1_000_000.0;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 Florian Frankenberger.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.moebiusgames.light.ws;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerList;
+
+/**
+ * Measures the time to the first request of a server with a number of
+ * generated web services with a number of endpoints each. The services are
+ * compiled before the measurement starts, either with the route processor
+ * (generated) or without it (reflection). As most of the startup cost is
+ * spent once per JVM (class loading, JIT) every configuration has to be
+ * measured in its own JVM:
+ * <pre>
+ * java -cp ... com.moebiusgames.light.ws.StartupBenchmark [services] [endpoints] [generated|reflection] [warmup]
+ * </pre>
+ *
+ * @author Florian Frankenberger
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int services = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int endpoints = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final boolean generated = args.length <= 2 || args[2].equals("generated");
+        final boolean warmup = args.length > 3 && args[3].equals("warmup");
+
+        System.out.println("services: " + services + ", endpoints: " + endpoints
+                + ", routes: " + (generated ? "generated" : "reflection")
+                + ", warmup: " + (warmup ? "on" : "off"));
+        final Path directory = Files.createTempDirectory("light-ws-benchmark");
+        compileServices(directory, services, endpoints, generated);
+
+        final long start = System.nanoTime();
+        final URLClassLoader classLoader = new URLClassLoader(new URL[] {directory.toUri().toURL()},
+                StartupBenchmark.class.getClassLoader());
+        final List<Handler> handlers = new ArrayList<>();
+        for (int i = 0; i < services; ++i) {
+            final WebServiceHandler<Object> handler = new WebServiceHandler<>(
+                    classLoader.loadClass("bench.Service" + i).getDeclaredConstructor().newInstance());
+            handler.setWarmupEnabled(warmup);
+            handlers.add(handler);
+        }
+        final long created = System.nanoTime();
+
+        final Server server = new Server(0);
+        server.setHandler(new HandlerList(handlers.toArray(new Handler[handlers.size()])));
+        server.start();
+        final long started = System.nanoTime();
+
+        //the last endpoint of the last service is the worst case for the lookup
+        final int status = get(server.getURI().resolve("/s" + (services - 1) + "/e" + (endpoints - 1) + "/42"));
+        final long firstRequest = System.nanoTime();
+        final long secondStart = System.nanoTime();
+        get(server.getURI().resolve("/s" + (services - 1) + "/e" + (endpoints - 1) + "/43"));
+        final long secondRequest = System.nanoTime();
+        server.stop();
+
+        System.out.printf("  create handlers: %8.2f ms%n", millis(start, created));
+        System.out.printf("  start server   : %8.2f ms%n", millis(created, started));
+        System.out.printf("  first request  : %8.2f ms (status %d)%n", millis(started, firstRequest), status);
+        System.out.printf("  second request : %8.2f ms%n", millis(secondStart, secondRequest));
+        System.out.printf("  time to first  : %8.2f ms%n", millis(start, firstRequest));
+    }
+
+    private static void compileServices(Path directory, int services, int endpoints,
+            boolean generated) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The benchmark needs to be run with a JDK");
+        }
+        final List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-d", directory.toString(),
+                "-cp", System.getProperty("java.class.path"),
+                generated ? "-processor" : "-proc:none"));
+        if (generated) {
+            arguments.add(WebServiceProcessor.class.getName());
+        }
+        for (int i = 0; i < services; ++i) {
+            final File source = directory.resolve("Service" + i + ".java").toFile();
+            Files.write(source.toPath(), createService(i, endpoints).getBytes(StandardCharsets.UTF_8));
+            arguments.add(source.getPath());
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+            throw new IllegalStateException("Could not compile the services");
+        }
+    }
+
+    private static String createService(int index, int endpoints) {
+        final StringBuilder source = new StringBuilder();
+        source.append("package bench;\n")
+                .append("import com.moebiusgames.light.ws.*;\n")
+                .append("import java.util.*;\n")
+                .append("@WebService(\"/s").append(index).append("\")\n")
+                .append("public class Service").append(index).append(" {\n");
+        for (int i = 0; i < endpoints; ++i) {
+            source.append("    @GetMapping(\"/e").append(i).append("/{id}\")\n")
+                    .append("    public Map<String, Object> e").append(i)
+                    .append("(@GetParameter(\"id\") int id) {\n")
+                    .append("        return Collections.singletonMap(\"id\", id);\n")
+                    .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static int get(URI uri) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        final int status = connection.getResponseCode();
+        connection.getInputStream().close();
+        return status;
+    }
+
+    private static double millis(long from, long to) {
+        return (to - from) / 1_000_000.0;
+    }
+
+}
@@ -23,12 +23,57 @@
  */
 package com.moebiusgames.light.ws;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerList;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.web.client.ResponseErrorHandler;
@@ -121,4 +166,1290 @@ public class WebServiceTest {
         server.stop();
     }
 
+    @Test
+    public void testStreamingPostMapping() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        ResultObject response = restTemplate.postForObject(server.getURI().resolve("/web/join"),
+                new HttpEntity<>("{\"info\":\"a\"}\n{\"info\":\"b\"}\n{\"info\":\"c\"}\n", headers),
+                ResultObject.class);
+        assertEquals("a,b,c", response.getMsg());
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        response = restTemplate.postForObject(server.getURI().resolve("/web/count"),
+                new HttpEntity<>("[{\"info\":\"a\"},{\"info\":\"b\"}]", headers),
+                ResultObject.class);
+        assertEquals("2", response.getMsg());
+
+        ResponseEntity<String> broken = restTemplate.postForEntity(server.getURI().resolve("/web/count"),
+                new HttpEntity<>("[{\"info\":\"a\"},{\"info\":", headers),
+                String.class);
+        assertEquals(400, broken.getStatusCodeValue());
+
+        server.stop();
+    }
+
+    @Test
+    public void testBatchedPostMapping() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<ResponseEntity<ResultObject>>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            final InfoObject infoObject = new InfoObject();
+            infoObject.setInfo(i == 0 ? "" : "info" + i);
+            responses.add(executor.submit(() -> restTemplate.postForEntity(
+                    server.getURI().resolve("/web/batched"), infoObject, ResultObject.class)));
+        }
+
+        assertEquals(422, responses.get(0).get().getStatusCodeValue());
+        assertEquals("empty", responses.get(0).get().getBody().getMsg());
+        for (int i = 1; i < 4; ++i) {
+            ResponseEntity<ResultObject> response = responses.get(i).get();
+            assertEquals(200, response.getStatusCodeValue());
+            assertTrue(response.getBody().getMsg().startsWith("info" + i + " of "));
+        }
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testBatchEndpointPrecedence() throws Exception {
+        //the path of the batch endpoint also matches a mapping of the service
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> batch = new HttpEntity<>("[{\"method\":\"POST\",\"path\":\"/web/say/batched/1\","
+                + "\"body\":{\"info\":\"info\"}}]", headers);
+        for (boolean registry : new boolean[] {false, true}) {
+            WebServiceHandler<PostWebService> handler = new WebServiceHandler<>(new PostWebService());
+            handler.enableBatchEndpoint("/say/batch/1");
+            Server server = new Server(0);
+            server.setHandler(registry ? new WebServiceRegistryHandler(Collections.singletonList(handler)) : handler);
+            server.start();
+
+            ResponseEntity<String> response = restTemplate.postForEntity(
+                    server.getURI().resolve("/web/say/batch/1"), batch, String.class);
+            assertEquals(200, response.getStatusCodeValue());
+            assertTrue(response.getBody(), response.getBody().startsWith("[{\"status\":200,"));
+
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testBatchEndpoint() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        handler.enableBatchEndpoint("/batch", executor, 3);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String batch = "[{\"method\":\"GET\",\"path\":\"/web/test/world\"},"
+                + "{\"method\":\"GET\",\"path\":\"/web/test3\"},"
+                + "{\"method\":\"GET\",\"path\":\"/web/unknown\"}]";
+        String expected = "[{\"status\":200,\"body\":{\"msg\":\"Hello world\"}},"
+                + "{\"status\":404,\"body\":{}},"
+                + "{\"status\":404,\"body\":null}]";
+        assertEquals(expected, restTemplate.postForObject(server.getURI().resolve("/web/batch"),
+                new HttpEntity<>(batch, headers), String.class));
+        assertEquals(expected, restTemplate.postForObject(server.getURI().resolve("/web/batch?parallel=true"),
+                new HttpEntity<>(batch, headers), String.class));
+        //too many requests in one batch
+        String tooLarge = batch.replace("]", ",{\"method\":\"GET\",\"path\":\"/web/test/world\"}]");
+        assertEquals(413, restTemplate.postForEntity(server.getURI().resolve("/web/batch?parallel=true"),
+                new HttpEntity<>(tooLarge, headers), String.class).getStatusCodeValue());
+
+        //headers of the requests don't leak into the batch response
+        headers.set("Accept-Encoding", "gzip");
+        ResponseEntity<String> files = restTemplate.postForEntity(server.getURI().resolve("/web/batch"),
+                new HttpEntity<>("[{\"method\":\"GET\",\"path\":\"/web/export\"},"
+                        + "{\"method\":\"GET\",\"path\":\"/web/reference\"}]", headers), String.class);
+        assertEquals(null, files.getHeaders().getFirst("Last-Modified"));
+        assertEquals(null, files.getHeaders().getFirst("ETag"));
+        assertEquals(null, files.getHeaders().getFirst("Content-Encoding"));
+        assertTrue(files.getBody().contains("01234567890123456789"));
+        assertTrue(files.getBody().contains("reference reference"));
+
+        //binary results are base64 encoded and ranges only apply to the batch itself
+        headers.set("Range", "bytes=0-1");
+        JsonNode binary = ObjectMappers.getDefault().readTree(restTemplate.postForObject(
+                server.getURI().resolve("/web/batch"),
+                new HttpEntity<>("[{\"method\":\"GET\",\"path\":\"/web/bytes\"}]", headers), String.class)).get(0);
+        assertEquals(200, binary.get("status").asInt());
+        assertEquals("base64", binary.get("encoding").asText());
+        byte[] bytes = Base64.getDecoder().decode(binary.get("body").asText());
+        assertEquals(256, bytes.length);
+        for (int i = 0; i < bytes.length; ++i) {
+            assertEquals((byte) i, bytes[i]);
+        }
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testQueuedPostMapping() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+
+        InfoObject infoObject = new InfoObject();
+        infoObject.setInfo("job");
+        ResponseEntity<JsonNode> response = restTemplate.postForEntity(
+                server.getURI().resolve("/web/queued"), infoObject, JsonNode.class);
+        assertEquals(202, response.getStatusCodeValue());
+        String id = response.getBody().get("id").asText();
+        assertEquals("/web/jobs/" + id, response.getHeaders().getFirst("Location"));
+
+        JsonNode job;
+        do {
+            Thread.sleep(10);
+            job = restTemplate.getForObject(server.getURI().resolve("/web/jobs/" + id), JsonNode.class);
+        } while (!"DONE".equals(job.get("state").asText()));
+        assertEquals(200, job.get("statusCode").asInt());
+        assertEquals("processed job", job.get("result").get("msg").asText());
+
+        assertEquals(404, restTemplate.getForEntity(server.getURI().resolve("/web/jobs/unknown"),
+                String.class).getStatusCodeValue());
+
+        server.stop();
+    }
+
+    @Test
+    public void testJobStoreEviction() throws Exception {
+        JobStore store = new JobStore(2, 500);
+        QueuedJob first = new QueuedJob("first");
+        QueuedJob second = new QueuedJob("second");
+        assertTrue(store.add(first));
+        assertTrue(store.add(second));
+        //full of unfinished jobs
+        assertFalse(store.add(new QueuedJob("third")));
+        assertEquals(first, store.get("first"));
+
+        first.run(() -> "done");
+        store.finished(first);
+        //finished jobs make room for new ones
+        assertTrue(store.add(new QueuedJob("third")));
+        assertEquals(null, store.get("first"));
+        assertEquals(second, store.get("second"));
+
+        second.run(() -> "done");
+        store.finished(second);
+        assertEquals(second, store.get("second"));
+        Thread.sleep(600);
+        assertEquals(null, store.get("second"));
+        assertTrue(store.get("third") != null);
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        handler.setRateLimitKeyHeader("X-Api-Key");
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Api-Key", "client1");
+        HttpEntity<Void> client1 = new HttpEntity<>(headers);
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(200, restTemplate.exchange(server.getURI().resolve("/web/limited"),
+                    org.springframework.http.HttpMethod.GET, client1, String.class).getStatusCodeValue());
+        }
+        ResponseEntity<String> limited = restTemplate.exchange(server.getURI().resolve("/web/limited"),
+                org.springframework.http.HttpMethod.GET, client1, String.class);
+        assertEquals(429, limited.getStatusCodeValue());
+        assertEquals("10", limited.getHeaders().getFirst("Retry-After"));
+
+        //other clients and other mappings are not affected
+        headers = new HttpHeaders();
+        headers.set("X-Api-Key", "client2");
+        assertEquals(200, restTemplate.exchange(server.getURI().resolve("/web/limited"),
+                org.springframework.http.HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCodeValue());
+        assertEquals(200, restTemplate.exchange(server.getURI().resolve("/web/test/world"),
+                org.springframework.http.HttpMethod.GET, client1, String.class).getStatusCodeValue());
+
+        server.stop();
+    }
+
+    @Test
+    public void testRateLimitForwardedFor() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        handler.setRateLimitKeyHeader("X-Forwarded-For");
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        //the client can prepend anything, but the entry of the proxy is the same
+        for (int i = 0; i < 3; ++i) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set("X-Forwarded-For", "10.1.1." + i + ", 192.168.0.7");
+            assertEquals(i < 2 ? 200 : 429, restTemplate.exchange(server.getURI().resolve("/web/limited"),
+                    org.springframework.http.HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCodeValue());
+        }
+        server.stop();
+
+        //new clients beyond the cap share one bucket
+        RateLimiter rateLimiter = new RateLimiter(0.1, 1, 4);
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(0, rateLimiter.tryAcquire("client" + i));
+        }
+        assertEquals(0, rateLimiter.tryAcquire("client4"));
+        assertTrue(rateLimiter.tryAcquire("client5") > 0);
+        assertEquals(4, rateLimiter.getBucketCount());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        handler.setConcurrencyLimiter(limiter);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<ResponseEntity<ResultObject>> slow = executor.submit(() -> restTemplate.getForEntity(
+                server.getURI().resolve("/web/slow/500"), ResultObject.class));
+        assertEquals(1, awaitValue(limiter::getInFlight, 1));
+        assertEquals(503, restTemplate.getForEntity(server.getURI().resolve("/web/test/world"),
+                String.class).getStatusCodeValue());
+        assertEquals(200, slow.get().getStatusCodeValue());
+        assertEquals(200, restTemplate.getForEntity(server.getURI().resolve("/web/test/world"),
+                String.class).getStatusCodeValue());
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(0, awaitValue(limiter::getInFlight, 0));
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrencyLimitLatencyWithoutBody() throws Exception {
+        WebServiceHandler<PostWebService> handler = new WebServiceHandler<>(new PostWebService());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        handler.setConcurrencyLimiter(limiter);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+        URI uri = server.getURI();
+
+        byte[] body = "{\"info\": \"slowly sent\"}".getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /web/say/foobar/12345 HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body, 0, 4);
+            out.flush();
+            Thread.sleep(500);
+            out.write(body, 4, body.length - 4);
+            out.flush();
+            String response = readFully(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 200"));
+        }
+        //the time the client took to send the body is not the latency of the method
+        assertEquals(0, awaitValue(limiter::getInFlight, 0));
+        assertTrue(String.valueOf(limiter.getShortLatencyMicros()),
+                limiter.getShortLatencyMicros() > 0 && limiter.getShortLatencyMicros() < 400_000);
+
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrencyLimitAsyncBody() throws Exception {
+        WebServiceHandler<PostWebService> handler = new WebServiceHandler<>(new PostWebService());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1);
+        handler.setConcurrencyLimiter(limiter);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+        URI uri = server.getURI();
+
+        byte[] body = "{\"info\": \"slowly sent\"}".getBytes(StandardCharsets.UTF_8);
+        String head = "POST /web/async HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body, 0, 4);
+            out.flush();
+            //the permit is taken before the body is read
+            assertEquals(1, awaitValue(limiter::getInFlight, 1));
+            InfoObject infoObject = new InfoObject();
+            infoObject.setInfo("rejected");
+            assertEquals(503, restTemplate.postForEntity(uri.resolve("/web/async"), infoObject,
+                    String.class).getStatusCodeValue());
+
+            out.write(body, 4, body.length - 4);
+            out.flush();
+            String response = readFully(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 200"));
+            assertTrue(response, response.contains("received slowly sent"));
+        }
+        assertEquals(0, awaitValue(limiter::getInFlight, 0));
+
+        //a body that is never completed gives its permit back
+        try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body, 0, 4);
+            out.flush();
+            assertEquals(1, awaitValue(limiter::getInFlight, 1));
+        }
+        assertEquals(0, awaitValue(limiter::getInFlight, 0));
+
+        server.stop();
+    }
+
+    @Test
+    public void testBulkhead() throws Exception {
+        Server server = setUpWebServer(new GetWebService());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<ResponseEntity<ResultObject>>> slowResponses = new ArrayList<>();
+        for (int i = 0; i < 2; ++i) {
+            slowResponses.add(executor.submit(() -> restTemplate.getForEntity(
+                    server.getURI().resolve("/web/isolated/500"), ResultObject.class)));
+        }
+        Thread.sleep(200);
+
+        //one request is executed, one is queued - so the bulkhead is full
+        assertEquals(503, restTemplate.getForEntity(server.getURI().resolve("/web/isolated/0"),
+                String.class).getStatusCodeValue());
+        //while other requests are not affected at all
+        assertEquals(200, restTemplate.getForEntity(server.getURI().resolve("/web/test/world"),
+                String.class).getStatusCodeValue());
+        for (Future<ResponseEntity<ResultObject>> slowResponse : slowResponses) {
+            assertEquals(200, slowResponse.get().getStatusCodeValue());
+            assertEquals("Hello after 500", slowResponse.get().getBody().getMsg());
+        }
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        Server server = setUpWebServer(new GetWebService());
+
+        assertEquals("Hello with time left", restTemplate.getForObject(
+                server.getURI().resolve("/web/deadline/0"), ResultObject.class).getMsg());
+
+        long start = System.currentTimeMillis();
+        assertEquals(504, restTemplate.getForEntity(server.getURI().resolve("/web/deadline/5000"),
+                String.class).getStatusCodeValue());
+        assertTrue(System.currentTimeMillis() - start < 2000);
+
+        //clients can shorten the deadline
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(RequestContext.TIMEOUT_HEADER, "50");
+        start = System.currentTimeMillis();
+        assertEquals(504, restTemplate.exchange(server.getURI().resolve("/web/slow/5000"),
+                org.springframework.http.HttpMethod.GET, new HttpEntity<>(headers), String.class).getStatusCodeValue());
+        assertTrue(System.currentTimeMillis() - start < 2000);
+
+        server.stop();
+    }
+
+    @Test
+    public void testRequestScheduler() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        RequestScheduler scheduler = new RequestScheduler(1, 10);
+        handler.setRequestScheduler(scheduler);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+        Future<?> blocking = executor.submit(() -> restTemplate.getForObject(
+                server.getURI().resolve("/web/slow/1000"), ResultObject.class));
+        assertEquals(1, awaitValue(scheduler::getRunning, 1));
+        List<Future<?>> waiting = new ArrayList<>();
+        for (String path : new String[] {"/web/slow/100", "/web/slow/100", "/web/health"}) {
+            waiting.add(executor.submit(() -> finished.add(restTemplate.getForObject(
+                    server.getURI().resolve(path), ResultObject.class).getMsg())));
+            assertEquals(waiting.size(), awaitValue(scheduler::getQueueLength, waiting.size()));
+        }
+        assertEquals(1, scheduler.getRunning());
+
+        blocking.get();
+        for (Future<?> future : waiting) {
+            future.get();
+        }
+        //the health check was queued last but is executed first
+        assertEquals("healthy", finished.get(0));
+        assertEquals(0, awaitValue(scheduler::getRunning, 0));
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testRequestSchedulerPriorityShares() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1, 10);
+        double low = scheduler.nextFinishTag("", 0);
+        //each level doubles the share, so a waiting request with priority 0
+        //is overtaken by no more than 7 requests with priority 3
+        int overtaking = 0;
+        while (scheduler.nextFinishTag("", 3) < low) {
+            overtaking++;
+        }
+        assertEquals(7, overtaking);
+    }
+
+    @Test
+    public void testGeneratedRoutes() throws Exception {
+        @SuppressWarnings("unchecked")
+        GeneratedRoutes<GetWebService> routes = (GeneratedRoutes<GetWebService>) Class.forName(
+                GetWebService.class.getName() + GeneratedRoutes.CLASS_NAME_SUFFIX)
+                .getDeclaredConstructor().newInstance();
+        int annotatedMethods = 0;
+        for (Method method : GetWebService.class.getMethods()) {
+            if (method.isAnnotationPresent(GetMapping.class)
+                    || method.isAnnotationPresent(SseMapping.class)) {
+                annotatedMethods++;
+            }
+        }
+        assertEquals(annotatedMethods, routes.getRoutes().size());
+
+        GetWebService service = new GetWebService();
+        for (int i = 0; i < routes.getRoutes().size(); ++i) {
+            GeneratedRoute route = routes.getRoutes().get(i);
+            if (route.getMethodName().equals("testMe")) {
+                ResultObject result = (ResultObject) routes.invoke(i, service, new Object[] {"world"});
+                assertEquals("Hello world", result.getMsg());
+            }
+        }
+
+        //the handler dispatches to the generated routes instead of using reflection
+        Server server = setUpWebServer(service);
+        assertEquals(GetWebService.class.getName() + GeneratedRoutes.CLASS_NAME_SUFFIX,
+                restTemplate.getForObject(server.getURI().resolve("/web/caller"), String.class));
+
+        server.stop();
+    }
+
+    @Test
+    public void testWarmupAndObjectMapper() throws Exception {
+        WebServiceHandler<GetWebService> handler = new WebServiceHandler<>(new GetWebService());
+        handler.setObjectMapper(new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT));
+        handler.setWarmupEnabled(true);
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        String result = restTemplate.getForObject(server.getURI().resolve("/web/test/world"), String.class);
+        assertTrue(result.contains("\n"));
+        assertTrue(result.contains("Hello world"));
+
+        server.stop();
+    }
+
+    @Test
+    public void testRegistryHandler() throws Exception {
+        WebServiceRegistryHandler handler = new WebServiceRegistryHandler(
+                new GetWebService(), new PostWebService());
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        assertEquals("Hello world", restTemplate.getForObject(
+                server.getURI().resolve("/web/test/world"), ResultObject.class).getMsg());
+        InfoObject infoObject = new InfoObject();
+        infoObject.setInfo("some info");
+        assertEquals("some info for foobar and number 12345", restTemplate.postForObject(
+                server.getURI().resolve("/web/say/foobar/12345"), infoObject, ResultObject.class).getMsg());
+
+        server.stop();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegistryHandlerConflict() throws Exception {
+        new WebServiceRegistryHandler(new GetWebService(), new GetWebService());
+    }
+
+    @Test
+    public void testDuplicateRoutesInOneService() throws Exception {
+        //routes of the same service don't conflict, literal segments take precedence over parameters
+        for (boolean registry : new boolean[] {false, true}) {
+            Server server = new Server(0);
+            server.setHandler(registry
+                    ? new WebServiceRegistryHandler(new GetWebService())
+                    : new WebServiceHandler<>(new GetWebService()));
+            server.start();
+
+            assertEquals("alias foo", restTemplate.getForObject(
+                    server.getURI().resolve("/web/alias/foo"), String.class));
+            assertEquals("latest alias", restTemplate.getForObject(
+                    server.getURI().resolve("/web/alias/latest"), String.class));
+
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testRegistryHandlerRegistration() throws Exception {
+        WebServiceRegistryHandler handler = new WebServiceRegistryHandler(new GetWebService());
+        Server server = new Server(0);
+        server.setHandler(handler);
+        server.start();
+
+        InfoObject infoObject = new InfoObject();
+        infoObject.setInfo("some info");
+        assertEquals(404, restTemplate.postForEntity(server.getURI().resolve("/web/say/foobar/12345"),
+                infoObject, String.class).getStatusCodeValue());
+
+        PostWebService postWebService = new PostWebService();
+        handler.register(postWebService);
+        assertEquals(2, handler.getServiceHandlers().size());
+        assertEquals(200, restTemplate.postForEntity(server.getURI().resolve("/web/say/foobar/12345"),
+                infoObject, String.class).getStatusCodeValue());
+
+        assertTrue(handler.unregister(postWebService));
+        assertEquals(404, restTemplate.postForEntity(server.getURI().resolve("/web/say/foobar/12345"),
+                infoObject, String.class).getStatusCodeValue());
+        assertEquals(200, restTemplate.getForEntity(server.getURI().resolve("/web/test/world"),
+                String.class).getStatusCodeValue());
+
+        server.stop();
+    }
+
+    @Test
+    public void testRegistryHandlerDrain() throws Exception {
+        WebServiceRegistryHandler registry = new WebServiceRegistryHandler(new PostWebService());
+        GetWebService service = new GetWebService();
+        WebServiceHandler<GetWebService> handler = registry.register(service);
+        Server server = new Server(0);
+        server.setHandler(registry);
+        server.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        //executed by the bulkhead of the service, which is shut down on unregister
+        Future<ResponseEntity<ResultObject>> slow = executor.submit(() -> restTemplate.getForEntity(
+                server.getURI().resolve("/web/isolated/1000"), ResultObject.class));
+        assertEquals(1, awaitValue(handler::getRequestsInFlight, 1));
+        Future<Boolean> unregistering = executor.submit(() -> registry.unregister(service));
+        assertEquals(1, awaitValue(() -> registry.getServiceHandlers().size(), 1));
+
+        //new requests don't reach the service anymore, the running one is waited for
+        assertEquals(404, restTemplate.getForEntity(server.getURI().resolve("/web/test/world"),
+                String.class).getStatusCodeValue());
+        assertFalse(unregistering.isDone());
+        assertEquals(200, slow.get().getStatusCodeValue());
+        assertEquals("Hello after 1000", slow.get().getBody().getMsg());
+        assertTrue(unregistering.get());
+        assertEquals(0, handler.getRequestsInFlight());
+        executor.shutdown();
+
+        server.stop();
+    }
+
+    @Test
+    public void testClient() throws Exception {
+        Server server = new Server(0);
+        server.setHandler(new WebServiceRegistryHandler(new GetWebService(), new PostWebService()));
+        server.start();
+
+        WebServiceClient webServiceClient = new WebServiceClient(server.getURI());
+        GetWebServiceClient client = GetWebServiceClient.create(webServiceClient);
+        assertEquals("Hello big world", client.testMe("big world").getMsg());
+        assertEquals("Hello default", client.greet("default"));
+        try {
+            client.unmapped();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+        List<CompletableFuture<ResultObject>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            futures.add(client.testMeAsync("async " + i));
+        }
+        for (int i = 0; i < 10; ++i) {
+            assertEquals("Hello async " + i, futures.get(i).get().getMsg());
+        }
+
+        Response<ResultObject> response = client.testMe2();
+        assertEquals(500, response.getStatusCode());
+        assertEquals("Hello there", response.getResponseObject().getMsg());
+        try {
+            client.testMe3();
+            fail("404 expected");
+        } catch (WebServiceClientException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+
+        InfoObject infoObject = new InfoObject();
+        infoObject.setInfo("some info");
+        assertEquals("some info for foobar and number 12345",
+                client.saySomething("foobar", infoObject, 12345).getMsg());
+
+        //null is not sent as "null"
+        try {
+            client.testMe(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+        try {
+            client.testMeAsync(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        webServiceClient.close();
+        assertTrue(webServiceClient.getExecutor().isShutdown());
+        server.stop();
+    }
+
+    @Test
+    public void testServerSentEvents() throws Exception {
+        GetWebService service = new GetWebService();
+        Server server = setUpWebServer(service);
+
+        HttpURLConnection connection = (HttpURLConnection) server.getURI()
+                .resolve("/web/events/news").toURL().openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/event-stream"));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                connection.getInputStream(), StandardCharsets.UTF_8))) {
+            assertEquals("event: welcome", nextEventLine(reader));
+            assertEquals("data: news", nextEventLine(reader));
+
+            assertEquals(1, service.getSubscriberCount());
+            service.publish(new ResultObject("breaking"));
+            assertEquals("data: {\"msg\":\"breaking\"}", nextEventLine(reader));
+
+            service.completeSubscribers();
+            assertEquals(null, nextEventLine(reader));
+        }
+        assertEquals(0, awaitValue(service::getSubscriberCount, 0));
+
+        server.stop();
+    }
+
+    private static String nextEventLine(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && (line.isEmpty() || line.startsWith(":")));
+        return line;
+    }
+
+    @Test
+    public void testWebSocketEndpoint() throws Exception {
+        GetWebService service = new GetWebService();
+        WebSocketEndpoint endpoint = new WebSocketEndpoint("/web/control");
+        endpoint.addMethod(GetWebService.class.getMethod("control", InfoObject.class),
+                ObjectMappers.getDefault());
+        endpoint.addMethod(GetWebService.class.getMethod("controlBinary", ByteBuffer.class, WebSocketSession.class),
+                ObjectMappers.getDefault());
+
+        List<Object> sent = new ArrayList<>();
+        WebSocketSession session = new WebSocketSession() {
+            @Override
+            public boolean send(Object message) {
+                return sent.add(WebSocketEndpoint.encode(message, ObjectMappers.getDefault()));
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        endpoint.onText(service, session, "{\"info\":\"stop\"}");
+        assertEquals("{\"msg\":\"control stop\"}", sent.get(0));
+        endpoint.onBinary(service, session, ByteBuffer.wrap(new byte[] {1, 2, 3}));
+        assertEquals(ByteBuffer.wrap(new byte[] {3, 2, 1}), sent.get(1));
+        //broken messages are dropped
+        endpoint.onText(service, session, "{broken");
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    public void testWebSocketServiceHandler() throws Exception {
+        Server server = new Server(0);
+        server.setHandler(new WebSocketServiceHandler(new GetWebService()));
+        server.start();
+        WebSocketClient webSocketClient = new WebSocketClient();
+        webSocketClient.start();
+
+        BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        Session session = webSocketClient.connect(new WebSocketAdapter() {
+            @Override
+            public void onWebSocketText(String message) {
+                received.add(message);
+            }
+
+            @Override
+            public void onWebSocketBinary(byte[] payload, int offset, int length) {
+                received.add(ByteBuffer.wrap(Arrays.copyOfRange(payload, offset, offset + length)));
+            }
+        }, URI.create("ws://localhost:" + server.getURI().getPort() + "/web/control")).get(5, TimeUnit.SECONDS);
+
+        session.getRemote().sendString("{\"info\":\"stop\"}");
+        assertEquals("{\"msg\":\"control stop\"}", received.poll(5, TimeUnit.SECONDS));
+        session.getRemote().sendBytes(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+        assertEquals(ByteBuffer.wrap(new byte[] {3, 2, 1}), received.poll(5, TimeUnit.SECONDS));
+        session.close();
+
+        //all other requests are served by the web service
+        assertEquals("Hello world", restTemplate.getForObject(server.getURI().resolve("/web/test/world"),
+                ResultObject.class).getMsg());
+
+        webSocketClient.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testRangeRequests() throws Exception {
+        Server server = setUpWebServer(new GetWebService());
+        URI uri = server.getURI().resolve("/web/export");
+
+        HttpURLConnection full = (HttpURLConnection) uri.toURL().openConnection();
+        assertEquals(200, full.getResponseCode());
+        assertEquals("bytes", full.getHeaderField("Accept-Ranges"));
+        assertEquals(1000, readString(full).length());
+        String etag = full.getHeaderField("ETag");
+
+        HttpURLConnection single = (HttpURLConnection) uri.toURL().openConnection();
+        single.setRequestProperty("Range", "bytes=12-15");
+        assertEquals(206, single.getResponseCode());
+        assertEquals("bytes 12-15/1000", single.getHeaderField("Content-Range"));
+        assertEquals("2345", readString(single));
+
+        HttpURLConnection suffix = (HttpURLConnection) uri.toURL().openConnection();
+        suffix.setRequestProperty("Range", "bytes=-3");
+        suffix.setRequestProperty("If-Range", etag);
+        assertEquals(206, suffix.getResponseCode());
+        assertEquals("789", readString(suffix));
+
+        HttpURLConnection multi = (HttpURLConnection) uri.toURL().openConnection();
+        multi.setRequestProperty("Range", "bytes=0-1,5-6,6-7");
+        assertEquals(206, multi.getResponseCode());
+        assertTrue(multi.getContentType().startsWith("multipart/byteranges"));
+        String body = readString(multi);
+        assertTrue(body.contains("Content-Range: bytes 0-1/1000\r\n\r\n01\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 5-7/1000\r\n\r\n567\r\n"));
+
+        HttpURLConnection changed = (HttpURLConnection) uri.toURL().openConnection();
+        changed.setRequestProperty("Range", "bytes=0-9");
+        changed.setRequestProperty("If-Range", "\"outdated\"");
+        assertEquals(200, changed.getResponseCode());
+        assertEquals(1000, readString(changed).length());
+
+        HttpURLConnection unsatisfiable = (HttpURLConnection) uri.toURL().openConnection();
+        unsatisfiable.setRequestProperty("Range", "bytes=2000-");
+        assertEquals(416, unsatisfiable.getResponseCode());
+        assertEquals("bytes */1000", unsatisfiable.getHeaderField("Content-Range"));
+
+        server.stop();
+    }
+
+    @Test
+    public void testImmutableResult() throws Exception {
+        GetWebService service = new GetWebService();
+        Server server = setUpWebServer(service);
+        URI uri = server.getURI().resolve("/web/reference");
+
+        HttpURLConnection first = (HttpURLConnection) uri.toURL().openConnection();
+        assertEquals(200, first.getResponseCode());
+        assertEquals(null, first.getHeaderField("Content-Encoding"));
+        String body = readString(first);
+        assertTrue(body.contains("reference reference"));
+
+        //the same object is not serialized again
+        service.reference.setMsg("changed");
+        HttpURLConnection second = (HttpURLConnection) uri.toURL().openConnection();
+        assertEquals(body, readString(second));
+
+        HttpURLConnection gzipped = (HttpURLConnection) uri.toURL().openConnection();
+        gzipped.setRequestProperty("Accept-Encoding", "deflate, gzip;q=0.5");
+        assertEquals(200, gzipped.getResponseCode());
+        assertEquals("gzip", gzipped.getHeaderField("Content-Encoding"));
+        assertTrue(gzipped.getContentLength() < body.length());
+        assertEquals(body, readGzipped(gzipped));
+
+        HttpURLConnection refused = (HttpURLConnection) uri.toURL().openConnection();
+        refused.setRequestProperty("Accept-Encoding", "gzip;q=0, *");
+        assertEquals(null, refused.getHeaderField("Content-Encoding"));
+        assertEquals(body, readString(refused));
+
+        //responses of the same version are encoded once
+        URI versioned = server.getURI().resolve("/web/reference/1");
+        String version1 = readString((HttpURLConnection) versioned.toURL().openConnection());
+        assertEquals(version1, readString((HttpURLConnection) versioned.toURL().openConnection()));
+        String version2 = readString((HttpURLConnection) server.getURI()
+                .resolve("/web/reference/2").toURL().openConnection());
+        assertTrue(version2.contains("version 2"));
+
+        server.stop();
+    }
+
+    @Test
+    public void testStaticAssets() throws Exception {
+        Server server = setUpWebServer(new GetWebService());
+
+        HttpURLConnection root = (HttpURLConnection) server.getURI().resolve("/web/ui?lang=de").toURL().openConnection();
+        root.setInstanceFollowRedirects(false);
+        assertEquals(302, root.getResponseCode());
+        assertTrue(root.getHeaderField("Location").endsWith("/web/ui/?lang=de"));
+
+        URI index = server.getURI().resolve("/web/ui/");
+        HttpURLConnection page = (HttpURLConnection) index.toURL().openConnection();
+        assertEquals(200, page.getResponseCode());
+        assertTrue(page.getContentType().toLowerCase().matches("text/html; ?charset=utf-8"));
+        assertEquals("public, max-age=3600", page.getHeaderField("Cache-Control"));
+        assertTrue(readString(page).contains("<body>light-ws</body>"));
+        String etag = page.getHeaderField("ETag");
+
+        HttpURLConnection cached = (HttpURLConnection) index.toURL().openConnection();
+        cached.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, cached.getResponseCode());
+
+        //mappings of the service still take precedence
+        HttpURLConnection mapping = (HttpURLConnection) server.getURI().resolve("/web/test/world").toURL().openConnection();
+        assertTrue(readString(mapping).contains("Hello world"));
+
+        URI script = server.getURI().resolve("/web/ui/app.js");
+        String plain = readString((HttpURLConnection) script.toURL().openConnection());
+        HttpURLConnection gzipped = (HttpURLConnection) script.toURL().openConnection();
+        gzipped.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, gzipped.getResponseCode());
+        assertEquals("gzip", gzipped.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzipped.getHeaderField("Vary"));
+        assertTrue(gzipped.getContentLength() < plain.length());
+        assertEquals(plain, readGzipped(gzipped));
+
+        //too large to be kept in memory
+        HttpURLConnection large = (HttpURLConnection) server.getURI().resolve("/web/ui/large.txt").toURL().openConnection();
+        assertEquals(200, large.getResponseCode());
+        assertEquals(3001, large.getContentLength());
+        assertEquals(3001, readString(large).length());
+        HttpURLConnection largeCached = (HttpURLConnection) server.getURI().resolve("/web/ui/large.txt").toURL().openConnection();
+        largeCached.setRequestProperty("If-None-Match", large.getHeaderField("ETag"));
+        assertEquals(304, largeCached.getResponseCode());
+
+        HttpURLConnection missing = (HttpURLConnection) server.getURI().resolve("/web/ui/missing.css").toURL().openConnection();
+        assertEquals(404, missing.getResponseCode());
+
+        server.stop();
+    }
+
+    @Test
+    public void testStaticAssetsFromDirectory() throws Exception {
+        Path directory = Paths.get(DirectoryAssetService.DIRECTORY);
+        Files.createDirectories(directory);
+        Path file = directory.resolve("notes.txt");
+        Path gzipFile = directory.resolve("notes.txt.gz");
+        Files.write(file, "plain notes".getBytes(StandardCharsets.UTF_8));
+        writeGzipped(gzipFile, "gzipped notes");
+        Server server = setUpWebServer(new DirectoryAssetService());
+        URI uri = server.getURI().resolve("/files/notes.txt");
+
+        assertEquals("plain notes", readString((HttpURLConnection) uri.toURL().openConnection()));
+        HttpURLConnection gzipped = (HttpURLConnection) uri.toURL().openConnection();
+        gzipped.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("gzipped notes", readGzipped(gzipped));
+
+        //only the .gz sibling changes, the cached asset must not be used anymore
+        writeGzipped(gzipFile, "changed notes");
+        Files.setLastModifiedTime(gzipFile, FileTime.fromMillis(
+                Files.getLastModifiedTime(gzipFile).toMillis() + 10_000));
+        gzipped = (HttpURLConnection) uri.toURL().openConnection();
+        gzipped.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("changed notes", readGzipped(gzipped));
+
+        Files.delete(gzipFile);
+        HttpURLConnection plain = (HttpURLConnection) uri.toURL().openConnection();
+        plain.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, plain.getResponseCode());
+        assertEquals(null, plain.getHeaderField("Content-Encoding"));
+        assertEquals("plain notes", readString(plain));
+
+        server.stop();
+        Files.delete(file);
+    }
+
+    private static void writeGzipped(Path file, String content) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testMultipartFormPost() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+        URI uri = server.getURI().resolve("/web/attach/7");
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            large.append("\r\n--xy");
+        }
+        String boundary = "xyz";
+        String body = "preamble\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n\r\n"
+                + "looks fine\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"first\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "abc\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"priority\"\r\n\r\n"
+                + "3\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"second\"; filename=\"b.log\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + large + "\r\n"
+                + "--" + boundary + "--\r\n";
+
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(readString(connection).contains("7:looks fine:3:first=a.txt(text/plain,3),"
+                + "second=b.log(application/octet-stream," + large.length() + ")"));
+
+        HttpURLConnection truncated = (HttpURLConnection) uri.toURL().openConnection();
+        truncated.setRequestMethod("POST");
+        truncated.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        truncated.setDoOutput(true);
+        try (OutputStream out = truncated.getOutputStream()) {
+            out.write(body.substring(0, 200).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(400, truncated.getResponseCode());
+
+        server.stop();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testLegacyMultipartSplitter() throws Exception {
+        final AtomicInteger splits = new AtomicInteger();
+        Server server = new Server(0);
+        server.setHandler(new HandlerList(
+                new WebServiceHandler<>(new PostWebService(), new DefaultMultipartSplitter() {
+                    @Override
+                    public List<MultipartSection> split(String boundary, File body) throws IOException {
+                        splits.incrementAndGet();
+                        return super.split(boundary, body);
+                    }
+                })
+        ));
+        server.start();
+
+        String boundary = "xyz";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"comment\"\r\n\r\n"
+                + "looks fine\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"first\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "abc\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"priority\"\r\n\r\n"
+                + "3\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"second\"; filename=\"b.log\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + "\r\n--xy\r\n"
+                + "--" + boundary + "--\r\n";
+
+        HttpURLConnection connection = (HttpURLConnection) server.getURI().resolve("/web/attach/7").toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(readString(connection).contains("7:looks fine:3:first=a.txt(text/plain,3),"
+                + "second=b.log(application/octet-stream,6)"));
+        assertEquals(1, splits.get());
+
+        server.stop();
+    }
+
+    @Test
+    public void testAsyncBody() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+        URI uri = server.getURI();
+
+        byte[] body = "{\"info\": \"slowly sent\"}".getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /web/async HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            //the body trickles in
+            for (byte b : body) {
+                out.write(b);
+                out.flush();
+                Thread.sleep(5);
+            }
+            String response = readFully(socket.getInputStream());
+            assertTrue(response, response.startsWith("HTTP/1.1 200"));
+            assertTrue(response, response.contains("received slowly sent"));
+        }
+        //the redispatch that finished the request has left the handler
+        WebServiceHandler handler = (WebServiceHandler) ((HandlerList) server.getHandler()).getHandlers()[0];
+        assertEquals(0, awaitValue(handler::getRequestsInFlight, 0));
+
+        server.stop();
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testLiveMultipartFiles() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+        URI uri = server.getURI().resolve("/web/forward");
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 16000; ++i) {
+            large.append("0123456789");
+        }
+        String body = "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"target\"\r\n\r\n"
+                + "backup\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n\r\n"
+                + "abc\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+                + "ignored\r\n"
+                + "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"b.bin\"\r\n\r\n"
+                + large + "\r\n"
+                + "--xyz--\r\n";
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=xyz");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(4096);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("backup,a.txt=3/3/true,b.bin=160000/160000/true", readString(connection));
+
+        server.stop();
+    }
+
+    @Test
+    public void testUploadDigestsAndLimit() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+        URI uri = server.getURI().resolve("/web/checksum");
+
+        HttpURLConnection small = postMultipartFile(uri, "abc", false);
+        assertEquals(200, small.getResponseCode());
+        assertEquals("3:ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", readString(small));
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            large.append("0123456789");
+        }
+        //rejected because of the announced length
+        assertEquals(413, postMultipartFile(uri, large.toString(), false).getResponseCode());
+        //rejected while reading - neither the second file nor the one in front of it is kept
+        int spooledParts = countTemporaryFiles("part");
+        assertEquals(413, postMultipartFile(uri, "abc\r\n--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"b.txt\"\r\n\r\n"
+                + large, true).getResponseCode());
+        assertEquals(spooledParts, countTemporaryFiles("part"));
+
+        //the same for raw uploads
+        URI rawUri = server.getURI().resolve("/web/raw");
+        HttpURLConnection raw = postRaw(rawUri, "abc", true);
+        assertEquals(200, raw.getResponseCode());
+        assertEquals("3", readString(raw));
+        assertEquals(413, postRaw(rawUri, large.toString(), false).getResponseCode());
+        int rawFiles = countTemporaryFiles("raw");
+        assertEquals(413, postRaw(rawUri, large.toString(), true).getResponseCode());
+        assertEquals(rawFiles, countTemporaryFiles("raw"));
+
+        server.stop();
+    }
+
+    private static int countTemporaryFiles(String prefix) {
+        String[] files = new File(System.getProperty("java.io.tmpdir"))
+                .list((dir, name) -> name.startsWith(prefix) && name.endsWith(".dat"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static HttpURLConnection postRaw(URI uri, String content, boolean chunked) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/octet-stream");
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(256);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return connection;
+    }
+
+    @Test
+    public void testTransferToNonBlockingChannel() throws Exception {
+        File file = File.createTempFile("transfer", ".txt");
+        file.deleteOnExit();
+        Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+        try {
+            new UploadedFile(file, "a.txt", "text/plain").transferTo(pipe.sink());
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            //expected
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+            file.delete();
+        }
+    }
+
+    private static HttpURLConnection postMultipartFile(URI uri, String content, boolean chunked) throws IOException {
+        String body = "--xyz\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n\r\n"
+                + content + "\r\n"
+                + "--xyz--\r\n";
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=xyz");
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(256);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return connection;
+    }
+
+    @Test
+    public void testResumableUpload() throws Exception {
+        Server server = setUpWebServer(new PostWebService());
+        URI uri = server.getURI().resolve("/web/upload");
+
+        HttpURLConnection create = (HttpURLConnection) uri.toURL().openConnection();
+        create.setRequestMethod("POST");
+        create.setRequestProperty("Upload-Length", "10");
+        create.setRequestProperty("Upload-Metadata", "filename "
+                + Base64.getEncoder().encodeToString("notes.txt".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(201, create.getResponseCode());
+        assertEquals("1.0.0", create.getHeaderField("Tus-Resumable"));
+        URI upload = URI.create(create.getHeaderField("Location"));
+
+        HttpURLConnection first = sendChunk(upload, 0, "01234");
+        assertEquals(204, first.getResponseCode());
+        assertEquals("5", first.getHeaderField("Upload-Offset"));
+
+        HttpURLConnection head = (HttpURLConnection) upload.toURL().openConnection();
+        head.setRequestMethod("HEAD");
+        assertEquals(200, head.getResponseCode());
+        assertEquals("5", head.getHeaderField("Upload-Offset"));
+        assertEquals("10", head.getHeaderField("Upload-Length"));
+
+        HttpURLConnection conflict = sendChunk(upload, 2, "23456");
+        assertEquals(409, conflict.getResponseCode());
+        assertEquals("5", conflict.getHeaderField("Upload-Offset"));
+
+        HttpURLConnection last = sendChunk(upload, 5, "56789");
+        assertEquals(200, last.getResponseCode());
+        assertEquals("10", last.getHeaderField("Upload-Offset"));
+        assertTrue(readString(last).contains("notes.txt:0123456789"));
+        //a retry of the last chunk does not complete the upload twice
+        assertEquals(404, sendChunk(upload, 5, "56789").getResponseCode());
+
+        HttpURLConnection gone = (HttpURLConnection) upload.toURL().openConnection();
+        gone.setRequestMethod("HEAD");
+        assertEquals(404, gone.getResponseCode());
+
+        server.stop();
+    }
+
+    private static HttpURLConnection sendChunk(URI upload, long offset, String chunk) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) upload.toURL().openConnection();
+        //HttpURLConnection does not support PATCH
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("X-HTTP-Method-Override", "PATCH");
+        connection.setRequestProperty("Content-Type", "application/offset+octet-stream");
+        connection.setRequestProperty("Upload-Offset", String.valueOf(offset));
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(chunk.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return connection;
+    }
+
+    private static String readGzipped(HttpURLConnection connection) throws IOException {
+        try (InputStream in = new GZIPInputStream(connection.getInputStream())) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static String readString(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * counters change independently of the responses the client sees (e.g.
+     * a permit is released after the response has been sent), so they are
+     * polled until they reach the expected value or a few seconds passed
+     */
+    private static int awaitValue(IntSupplier supplier, int expected)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && supplier.getAsInt() != expected; ++i) {
+            Thread.sleep(10);
+        }
+        return supplier.getAsInt();
+    }
+
 }
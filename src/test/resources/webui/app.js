@@ -0,0 +1,41 @@
+// test application
+console.log("light-ws asset 0");
+console.log("light-ws asset 1");
+console.log("light-ws asset 2");
+console.log("light-ws asset 3");
+console.log("light-ws asset 4");
+console.log("light-ws asset 5");
+console.log("light-ws asset 6");
+console.log("light-ws asset 7");
+console.log("light-ws asset 8");
+console.log("light-ws asset 9");
+console.log("light-ws asset 10");
+console.log("light-ws asset 11");
+console.log("light-ws asset 12");
+console.log("light-ws asset 13");
+console.log("light-ws asset 14");
+console.log("light-ws asset 15");
+console.log("light-ws asset 16");
+console.log("light-ws asset 17");
+console.log("light-ws asset 18");
+console.log("light-ws asset 19");
+console.log("light-ws asset 20");
+console.log("light-ws asset 21");
+console.log("light-ws asset 22");
+console.log("light-ws asset 23");
+console.log("light-ws asset 24");
+console.log("light-ws asset 25");
+console.log("light-ws asset 26");
+console.log("light-ws asset 27");
+console.log("light-ws asset 28");
+console.log("light-ws asset 29");
+console.log("light-ws asset 30");
+console.log("light-ws asset 31");
+console.log("light-ws asset 32");
+console.log("light-ws asset 33");
+console.log("light-ws asset 34");
+console.log("light-ws asset 35");
+console.log("light-ws asset 36");
+console.log("light-ws asset 37");
+console.log("light-ws asset 38");
+console.log("light-ws asset 39");